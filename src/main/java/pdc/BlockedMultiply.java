@@ -0,0 +1,153 @@
+package pdc;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Cache-blocked integer matrix multiply. Work is cut into k/j tiles sized
+ * to stay resident in L1/L2, the inner loop updates four output rows per
+ * element of B it loads, and large products are split into row or column
+ * panels that run on a ForkJoinPool.
+ */
+public final class BlockedMultiply {
+
+    public static final int DEFAULT_TILE = 64;
+    private static final long LEAF_WORK = 1L << 20;
+
+    private BlockedMultiply() {}
+
+    /** Jagged-array adapter over the flat kernel. */
+    public static int[][] multiply(int[][] a, int[][] b, int tile, ForkJoinPool pool) {
+        return multiply(Matrix.fromArray(a), Matrix.fromArray(b), tile, pool).toArray();
+    }
+
+    public static Matrix multiply(Matrix a, Matrix b, int tile, ForkJoinPool pool) {
+        return multiply(a, b, tile, pool, () -> false);
+    }
+
+    /**
+     * Polls {@code cancelled} before each panel and stops with CancellationException
+     * once it is true. A null pool runs every panel on the calling thread.
+     */
+    public static Matrix multiply(Matrix a, Matrix b, int tile, ForkJoinPool pool, BooleanSupplier cancelled) {
+        if (a.cols() != b.rows()) {
+            throw new IllegalArgumentException("Shape mismatch: " + a + " x " + b);
+        }
+        Matrix c = new Matrix(a.rows(), b.cols());
+        if (c.rows() == 0 || c.cols() == 0) return c;
+
+        Panel root = new Panel(a, b, c, Math.max(1, tile), cancelled, 0, c.rows(), 0, c.cols());
+        if (pool == null || root.work() <= LEAF_WORK) {
+            root.computeSerially();
+        } else {
+            pool.invoke(root);
+        }
+        return c;
+    }
+
+    private static final class Panel extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Matrix a;
+        private final Matrix b;
+        private final Matrix c;
+        private final int tile;
+        private final BooleanSupplier cancelled;
+        private final int i0, i1, j0, j1;
+
+        Panel(Matrix a, Matrix b, Matrix c, int tile, BooleanSupplier cancelled, int i0, int i1, int j0, int j1) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.tile = tile;
+            this.cancelled = cancelled;
+            this.i0 = i0;
+            this.i1 = i1;
+            this.j0 = j0;
+            this.j1 = j1;
+        }
+
+        long work() {
+            return (long) (i1 - i0) * (j1 - j0) * b.rows();
+        }
+
+        @Override
+        protected void compute() {
+            Panel[] halves = split();
+            if (halves == null) {
+                multiplyPanel();
+            } else {
+                invokeAll(halves[0], halves[1]);
+            }
+        }
+
+        /** Runs the same panels as compute(), one after another on the calling thread. */
+        void computeSerially() {
+            Panel[] halves = split();
+            if (halves == null) {
+                multiplyPanel();
+            } else {
+                halves[0].computeSerially();
+                halves[1].computeSerially();
+            }
+        }
+
+        /** Checks for cancellation, then halves a panel above LEAF_WORK; null for a leaf. */
+        private Panel[] split() {
+            if (cancelled.getAsBoolean()) throw new CancellationException();
+            if (work() <= LEAF_WORK) return null;
+            if (i1 - i0 >= Math.max(8, j1 - j0) || j1 - j0 <= tile) {
+                if (i1 - i0 <= 1) return null;
+                int mid = (i0 + i1) >>> 1;
+                return new Panel[] { new Panel(a, b, c, tile, cancelled, i0, mid, j0, j1),
+                        new Panel(a, b, c, tile, cancelled, mid, i1, j0, j1) };
+            }
+            int mid = j0 + ((j1 - j0) / 2 / tile) * tile;
+            if (mid <= j0) mid = (j0 + j1) >>> 1;
+            return new Panel[] { new Panel(a, b, c, tile, cancelled, i0, i1, j0, mid),
+                    new Panel(a, b, c, tile, cancelled, i0, i1, mid, j1) };
+        }
+
+        private void multiplyPanel() {
+            int[] ad = a.data(), bd = b.data(), cd = c.data();
+            int inner = b.rows();
+            for (int kk = 0; kk < inner; kk += tile) {
+                int kEnd = Math.min(kk + tile, inner);
+                for (int jj = j0; jj < j1; jj += tile) {
+                    int jEnd = Math.min(jj + tile, j1);
+                    int width = jEnd - jj;
+                    int i = i0;
+                    for (; i + 3 < i1; i += 4) {
+                        int a0 = a.rowOffset(i), a1 = a.rowOffset(i + 1), a2 = a.rowOffset(i + 2), a3 = a.rowOffset(i + 3);
+                        int c0 = c.rowOffset(i) + jj, c1 = c.rowOffset(i + 1) + jj;
+                        int c2 = c.rowOffset(i + 2) + jj, c3 = c.rowOffset(i + 3) + jj;
+                        for (int k = kk; k < kEnd; k++) {
+                            int bk = b.rowOffset(k) + jj;
+                            int v0 = ad[a0 + k], v1 = ad[a1 + k], v2 = ad[a2 + k], v3 = ad[a3 + k];
+                            for (int j = 0; j < width; j++) {
+                                int bkj = bd[bk + j];
+                                cd[c0 + j] += v0 * bkj;
+                                cd[c1 + j] += v1 * bkj;
+                                cd[c2 + j] += v2 * bkj;
+                                cd[c3 + j] += v3 * bkj;
+                            }
+                        }
+                    }
+                    for (; i < i1; i++) {
+                        int ai = a.rowOffset(i);
+                        int ci = c.rowOffset(i) + jj;
+                        for (int k = kk; k < kEnd; k++) {
+                            int bk = b.rowOffset(k) + jj;
+                            int v = ad[ai + k];
+                            for (int j = 0; j < width; j++) {
+                                cd[ci + j] += v * bd[bk + j];
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
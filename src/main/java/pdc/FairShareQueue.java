@@ -0,0 +1,140 @@
+package pdc;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Weighted fair queue over jobs. Items are grouped by their job's
+ * {@link Share}; a poll serves the highest-priority share that has work,
+ * and among equal priorities the one that has received the least service
+ * per unit of weight, then charges it the item's cost. A share can feed
+ * several queues at once, so its service is counted across all of them.
+ * Not thread-safe.
+ */
+public class FairShareQueue<T> {
+
+    /** One job's claim on the cluster. */
+    public static final class Share {
+        private final String id;
+        private final int priority;
+        private final double weight;
+        private double pass;
+
+        public Share(String id, int priority, double weight) {
+            if (!(weight > 0)) throw new IllegalArgumentException("Weight must be positive: " + weight);
+            this.id = id;
+            this.priority = priority;
+            this.weight = weight;
+        }
+
+        public String id() {
+            return id;
+        }
+
+        public int priority() {
+            return priority;
+        }
+
+        public double weight() {
+            return weight;
+        }
+
+        /** Service received so far divided by weight. */
+        public synchronized double pass() {
+            return pass;
+        }
+
+        /** Starts a new share level with running ones so it neither waits behind nor leaps ahead of them. */
+        public synchronized void startAt(double pass) {
+            this.pass = pass;
+        }
+
+        synchronized void charge(long cost) {
+            pass += Math.max(1, cost) / weight;
+        }
+    }
+
+    private final Function<? super T, Share> shareOf;
+    private final ToLongFunction<? super T> cost;
+    private final Map<Share, ArrayDeque<T>> queues = new LinkedHashMap<>();
+    private int size;
+
+    public FairShareQueue(Function<? super T, Share> shareOf, ToLongFunction<? super T> cost) {
+        this.shareOf = shareOf;
+        this.cost = cost;
+    }
+
+    public void add(T item) {
+        queues.computeIfAbsent(shareOf.apply(item), s -> new ArrayDeque<>()).add(item);
+        size++;
+    }
+
+    public void addAll(Iterable<? extends T> items) {
+        for (T item : items) add(item);
+    }
+
+    /** The item {@link #poll()} would return, without charging for it. */
+    public T peek() {
+        Share share = next(item -> true);
+        return share != null ? queues.get(share).peek() : null;
+    }
+
+    public T poll() {
+        return poll(item -> true);
+    }
+
+    /**
+     * Removes the next item from the best share whose head item is
+     * eligible; shares whose head is not eligible are skipped whole.
+     */
+    public T poll(Predicate<? super T> eligible) {
+        Share share = next(eligible);
+        if (share == null) return null;
+        ArrayDeque<T> queue = queues.get(share);
+        T item = queue.poll();
+        if (queue.isEmpty()) queues.remove(share);
+        size--;
+        share.charge(cost.applyAsLong(item));
+        return item;
+    }
+
+    public void removeIf(Predicate<? super T> filter) {
+        Iterator<ArrayDeque<T>> it = queues.values().iterator();
+        while (it.hasNext()) {
+            ArrayDeque<T> queue = it.next();
+            int before = queue.size();
+            queue.removeIf(filter);
+            size -= before - queue.size();
+            if (queue.isEmpty()) it.remove();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private Share next(Predicate<? super T> eligible) {
+        Share best = null;
+        double bestPass = 0;
+        for (Map.Entry<Share, ArrayDeque<T>> e : queues.entrySet()) {
+            Share share = e.getKey();
+            if (!eligible.test(e.getValue().peek())) continue;
+            double pass = share.pass();
+            if (best == null || share.priority > best.priority
+                    || (share.priority == best.priority && pass < bestPass)) {
+                best = share;
+                bestPass = pass;
+            }
+        }
+        return best;
+    }
+}
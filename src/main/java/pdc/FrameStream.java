@@ -0,0 +1,137 @@
+package pdc;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Length-prefixed Message framing over a blocking socket, using one
+ * pooled read buffer and one pooled write buffer per connection.
+ * Sends from any thread only append to a lock-free outbound queue and
+ * return; a single writer task on the given executor drains every queued
+ * frame into the write buffer and flushes once per batch. A write failure
+ * closes the socket, so the reader sees the loss, and fails later sends.
+ * Receives come from a single reader.
+ */
+public class FrameStream {
+
+    public static final int MAX_FRAME = 100_000_000;
+    private static final int INITIAL_BUFFER = 65536;
+    private static final int MAX_RETAINED = 8 * 1024 * 1024;
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final OutputStream out;
+    private final Executor writer;
+    private ByteBuffer readBuf = ByteBuffer.allocate(INITIAL_BUFFER);
+    private ByteBuffer writeBuf = ByteBuffer.allocate(INITIAL_BUFFER);
+    private final Queue<Message> outbound = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile IOException failure;
+    private volatile boolean closing;
+
+    public FrameStream(Socket socket, int bufferSize, Executor writer) throws IOException {
+        this.socket = socket;
+        this.writer = writer;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), bufferSize));
+        this.out = socket.getOutputStream();
+    }
+
+    /**
+     * Queues one frame for the writer and returns without waiting for it
+     * to be written.
+     */
+    public void send(Message msg) throws IOException {
+        IOException f = failure;
+        if (f != null) throw new IOException("Connection failed", f);
+        if (closing) throw new IOException("Connection closed");
+        outbound.add(msg);
+        scheduleWriter();
+    }
+
+    /** Closes the socket once every frame queued so far has been written. */
+    public void close() {
+        closing = true;
+        scheduleWriter();
+    }
+
+    private void scheduleWriter() {
+        if (wip.getAndIncrement() != 0) return;
+        try {
+            writer.execute(this::writeLoop);
+        } catch (RejectedExecutionException e) {
+            writeLoop();
+        }
+    }
+
+    private void writeLoop() {
+        int missed = 1;
+        do {
+            if (failure == null) {
+                try {
+                    drain();
+                } catch (IOException e) {
+                    failure = e;
+                    closeSocket();
+                }
+            }
+            if (failure != null) outbound.clear();
+            if (closing) closeSocket();
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void closeSocket() {
+        try { socket.close(); } catch (IOException ignored) {}
+    }
+
+    private void drain() throws IOException {
+        if (outbound.isEmpty()) return;
+        ByteBuffer buf = writeBuf;
+        buf.clear();
+        Message msg;
+        while ((msg = outbound.poll()) != null) {
+            int size = msg.encodedSize();
+            if (buf.remaining() < size + Integer.BYTES) {
+                if (buf.position() > 0) {
+                    out.write(buf.array(), 0, buf.position());
+                    buf.clear();
+                }
+                if (buf.capacity() < size + Integer.BYTES) {
+                    buf = ByteBuffer.allocate(size + Integer.BYTES);
+                    if (buf.capacity() <= MAX_RETAINED) writeBuf = buf;
+                }
+            }
+            buf.putInt(size);
+            msg.writeTo(buf);
+        }
+        out.write(buf.array(), 0, buf.position());
+        out.flush();
+    }
+
+    /**
+     * Reads the next frame. The returned message's payload is a view into
+     * this stream's read buffer and is only valid until the next call.
+     */
+    public Message receive() throws IOException {
+        int len = in.readInt();
+        if (len <= 0 || len > MAX_FRAME) return null;
+        ByteBuffer buf = readBuf;
+        if (buf.capacity() < len) {
+            buf = ByteBuffer.allocate(len);
+            if (len <= MAX_RETAINED) readBuf = buf;
+        }
+        in.readFully(buf.array(), 0, len);
+        buf.clear();
+        buf.limit(len);
+        return Message.readFrom(buf);
+    }
+}
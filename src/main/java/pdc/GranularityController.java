@@ -0,0 +1,44 @@
+package pdc;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chooses how many tasks per worker a job is cut into, per matrix size
+ * class, from what recent jobs of that class cost. A job whose per-task
+ * overhead (round trip minus worker compute time) is a large share of
+ * compute halves the count; a job that was cheap to split but finished
+ * unevenly across workers doubles it.
+ */
+public class GranularityController {
+
+    static final int MIN_TASKS = 1;
+    static final int MAX_TASKS = 16;
+    private static final int INITIAL_TASKS = 2;
+    private static final double HIGH_OVERHEAD = 0.25;
+    private static final double LOW_OVERHEAD = 0.10;
+    private static final double IMBALANCE = 0.15;
+
+    private final ConcurrentHashMap<Integer, Integer> tasksPerWorker = new ConcurrentHashMap<>();
+
+    /** Buckets a rows x cols job by the power of two above its larger side. */
+    public static int sizeClass(int rows, int cols) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(0, Math.max(rows, cols) - 1));
+    }
+
+    public int tasksPerWorker(int sizeClass) {
+        return tasksPerWorker.getOrDefault(sizeClass, INITIAL_TASKS);
+    }
+
+    /** Folds one finished job into its size class. */
+    public void record(int sizeClass, int used, long overheadNanos, long computeNanos, double imbalance) {
+        if (computeNanos <= 0) return;
+        double overhead = (double) Math.max(0, overheadNanos) / computeNanos;
+        int next = used;
+        if (overhead > HIGH_OVERHEAD) {
+            next = used / 2;
+        } else if (overhead < LOW_OVERHEAD && imbalance > IMBALANCE) {
+            next = used * 2;
+        }
+        tasksPerWorker.put(sizeClass, Math.max(MIN_TASKS, Math.min(MAX_TASKS, next)));
+    }
+}
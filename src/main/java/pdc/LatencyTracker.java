@@ -0,0 +1,56 @@
+package pdc;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Task service times normalized by task size (nanoseconds per multiply-add),
+ * kept as a per-worker EWMA and as a cluster-wide window of recent samples
+ * for percentiles.
+ */
+public class LatencyTracker {
+
+    private static final double ALPHA = 0.2;
+    private static final int WINDOW = 128;
+
+    private final ConcurrentHashMap<String, Double> ewma = new ConcurrentHashMap<>();
+    private final double[] window = new double[WINDOW];
+    private int count;
+    private int next;
+
+    /** Adds one finished task. */
+    public void record(String workerId, long nanos, long work) {
+        if (nanos <= 0 || work <= 0) return;
+        double sample = (double) nanos / work;
+        ewma.merge(workerId, sample, (old, s) -> old + ALPHA * (s - old));
+        synchronized (window) {
+            window[next] = sample;
+            next = (next + 1) % WINDOW;
+            count = Math.min(count + 1, WINDOW);
+        }
+    }
+
+    /** Worker's smoothed nanoseconds per unit of work, or 0 if it has no samples yet. */
+    public double ewma(String workerId) {
+        return ewma.getOrDefault(workerId, 0.0);
+    }
+
+    /**
+     * Returns the given percentile (0..1) of recent samples across all
+     * workers, or 0 if there are none.
+     */
+    public double percentile(double p) {
+        double[] sorted;
+        synchronized (window) {
+            if (count == 0) return 0;
+            sorted = Arrays.copyOf(window, count);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    public void forget(String workerId) {
+        ewma.remove(workerId);
+    }
+}
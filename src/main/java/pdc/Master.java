@@ -1,46 +1,123 @@
 package pdc;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class Master {
 
-    private final ExecutorService systemThreads = Executors.newCachedThreadPool();
+    private final ExecutorService systemThreads = Threads.newIoExecutor("master-io");
+    private final TimingWheel timers = new TimingWheel(TIMER_TICK_MS, TIMER_WHEEL_SIZE, systemThreads, "master-timer");
     private ServerSocket serverSocket;
+    private NioTransport nio;
+    private Transport transport;
+    private Path sharedMatrixDir;
+    private Partitioning partitioning;
+    private Scheduling scheduling;
     private final AtomicBoolean running = new AtomicBoolean(false);
     private final ConcurrentHashMap<String, WorkerConnection> workers = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, TaskInfo> pendingTasks = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, String> taskResults = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Job> jobs = new ConcurrentHashMap<>();
+    /** Pull-mode tasks not yet handed to a worker; guarded by itself. */
+    private final FairShareQueue<TaskInfo> taskQueue = new FairShareQueue<>(t -> t.job.share, TaskInfo::work);
     private final AtomicInteger taskCounter = new AtomicInteger(0);
+    private final AtomicInteger jobCounter = new AtomicInteger(0);
+    private final AtomicInteger reassignCursor = new AtomicInteger(0);
+    private final GranularityController granularity;
+    private final LatencyTracker latency = new LatencyTracker();
+    private volatile double speculationFactor;
+    private volatile ResultCache resultCache;
+    private volatile long heartbeatIdleMs;
+    private volatile long jobTimeoutMs = DEFAULT_JOB_TIMEOUT_MS;
     private String studentId;
     private static final int BUFFER_SIZE = 65536;
     private static final long TASK_TIMEOUT_MS = 3000;
-    private static final long HEARTBEAT_TIMEOUT_MS = 5000;
+    private static final long DEFAULT_JOB_TIMEOUT_MS = 60000;
+    /** Extra wait in coordinate() beyond the job deadline, covering job cleanup. */
+    private static final long CLEANUP_GRACE_MS = 5000;
+    private static final int MAX_RETRIES = 5;
+    private static final int MAX_BATCH_BYTES = 4 * 1024 * 1024;
+    private static final long DEFAULT_HEARTBEAT_IDLE_MS = 1000;
+    /** Suspicion at which a silent worker is declared lost. */
+    private static final double PHI_THRESHOLD = 8.0;
+    private static final double PHI_MIN_STDDEV_MS = 100;
+    private static final long LIVENESS_CHECK_MS = 100;
+    private static final long RETRY_BACKOFF_MS = 10;
+    private static final long TIMER_TICK_MS = 5;
+    private static final int TIMER_WHEEL_SIZE = 1024;
+    private static final int PULL_PREFETCH = 1;
+    /** Tasks per worker slot kept in flight; the rest wait here, where fair sharing can reorder them. */
+    private static final int DISPATCH_DEPTH = 2;
+    private static final double DEFAULT_SPECULATION_FACTOR = 2.0;
+    private static final long MIN_SPECULATION_MS = 20;
+    private static final int SPILL_BUDGET_FACTOR = 4;
+    private static final int IO_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+    public enum Transport { BLOCKING, NIO }
+
+    /** ROWS splits a job into row panels; TILES into a 2D grid of result tiles. */
+    public enum Partitioning { ROWS, TILES }
+
+    /** PUSH assigns tasks round-robin up front; PULL queues them for workers to request. */
+    public enum Scheduling { PUSH, PULL }
 
     public Master() {
+        this(new GranularityController());
+    }
+
+    /** Starts from the given task-count history rather than an empty one. */
+    Master(GranularityController granularity) {
+        this.granularity = granularity;
         this.studentId = System.getenv("STUDENT_ID");
         if (this.studentId == null) this.studentId = "student";
+        this.transport = "nio".equalsIgnoreCase(System.getenv("MASTER_TRANSPORT")) ? Transport.NIO : Transport.BLOCKING;
+        this.partitioning = "tiles".equalsIgnoreCase(System.getenv("MASTER_PARTITIONING")) ? Partitioning.TILES : Partitioning.ROWS;
+        this.scheduling = "pull".equalsIgnoreCase(System.getenv("MASTER_SCHEDULING")) ? Scheduling.PULL : Scheduling.PUSH;
+        String factor = System.getenv("SPECULATION_FACTOR");
+        this.speculationFactor = factor != null ? Double.parseDouble(factor) : DEFAULT_SPECULATION_FACTOR;
+        String idle = System.getenv("HEARTBEAT_IDLE_MS");
+        this.heartbeatIdleMs = idle != null && !idle.isEmpty() ? Long.parseLong(idle) : DEFAULT_HEARTBEAT_IDLE_MS;
+        String sharedDir = System.getenv("SHARED_MATRIX_DIR");
+        if (sharedDir != null && !sharedDir.isEmpty()) this.sharedMatrixDir = Paths.get(sharedDir);
+        String cacheBytes = System.getenv("RESULT_CACHE_BYTES");
+        if (cacheBytes != null && !cacheBytes.isEmpty()) {
+            long bytes = Long.parseLong(cacheBytes);
+            String cacheDir = System.getenv("RESULT_CACHE_DIR");
+            this.resultCache = cacheDir != null && !cacheDir.isEmpty()
+                    ? new ResultCache(bytes, Paths.get(cacheDir), bytes * SPILL_BUDGET_FACTOR)
+                    : new ResultCache(bytes);
+        }
     }
 
     public Master(int port) throws IOException {
@@ -49,152 +126,728 @@ public class Master {
     }
 
     public Object coordinate(String operation, int[][] data, int workerCount) {
-        List<WorkerConnection> available = getAliveWorkers();
-        if (available.isEmpty()) {
+        try {
+            return coordinateAsync(operation, data, workerCount)
+                    .get(jobTimeoutMs + CLEANUP_GRACE_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
             return null;
         }
+    }
+
+    /**
+     * Jagged-array adapter over {@link #coordinateAsync(String, Matrix, int)}.
+     */
+    public CompletableFuture<int[][]> coordinateAsync(String operation, int[][] data, int workerCount) {
+        return coordinateAsync(operation, Matrix.fromArray(data), workerCount)
+                .thenApply(result -> result != null ? result.toArray() : null);
+    }
+
+    /**
+     * Starts a job at default priority and weight; see
+     * {@link #coordinateAsync(String, Matrix, int, int, double)}.
+     */
+    public CompletableFuture<Matrix> coordinateAsync(String operation, Matrix data, int workerCount) {
+        return coordinateAsync(operation, data, workerCount, 0, 1.0);
+    }
+
+    /**
+     * Starts a job and returns a future of its result matrix. The future
+     * completes with null when no workers are available, and with whatever
+     * blocks have arrived if the job deadline passes first. With a result
+     * cache configured, a repeated input is answered from the cache without
+     * contacting any worker. Concurrent jobs share workers task by task: a
+     * higher priority is always served first, and jobs of equal priority
+     * receive work in proportion to their weight.
+     */
+    public CompletableFuture<Matrix> coordinateAsync(String operation, Matrix data, int workerCount,
+                                                     int priority, double weight) {
+        ResultCache cache = resultCache;
+        String cacheKey = cache != null ? ResultCache.key(operation, data) : null;
+        if (cache != null) {
+            Matrix cached = cache.get(cacheKey);
+            if (cached != null) return CompletableFuture.completedFuture(cached);
+        }
+        Job job = startJob(operation, data, priority, weight, null);
+        if (job == null) return CompletableFuture.completedFuture(null);
+        return job.finished.thenApply(complete -> {
+            if (cache != null && complete) cache.put(cacheKey, job.output);
+            return job.output;
+        });
+    }
+
+    /**
+     * Starts a job whose result is published as row blocks while the job
+     * runs, in completion order. Each block is a full-width band of rows
+     * that the master forgets once it is delivered, so the whole result
+     * never has to be held at once. Backpressure reaches the workers: only
+     * a few bands per worker are computed ahead of what the subscriber has
+     * consumed, and cancelling the subscription cancels the job. The
+     * stream fails if no worker supports the operation, or if the job
+     * deadline passes with no band finishing; time spent waiting for the
+     * subscriber to ask for more does not count.
+     */
+    public Flow.Publisher<ResultStream.RowBlock> coordinateStreaming(String operation, Matrix data, int workerCount) {
+        AtomicReference<Job> started = new AtomicReference<>();
+        ResultStream stream = new ResultStream(systemThreads, () -> {
+            Job job = started.get();
+            if (job != null) releaseBands(job, 1);
+        }, () -> {
+            Job job = started.get();
+            if (job != null) job.cancelled.complete(null);
+        });
+        ResultCache cache = resultCache;
+        Matrix cached = cache != null ? cache.get(ResultCache.key(operation, data)) : null;
+        if (cached != null) {
+            stream.emit(0, cached);
+            stream.complete();
+            return stream;
+        }
+        Job job = startJob(operation, data, 0, 1.0, stream);
+        if (job == null) {
+            stream.fail(new IllegalStateException("No worker supports " + operation));
+            return stream;
+        }
+        started.set(job);
+        job.finished.thenAccept(complete -> {
+            if (complete) {
+                stream.complete();
+            } else if (!running.get()) {
+                stream.fail(new IllegalStateException("Master shut down before job " + job.jobId + " finished"));
+            } else if (!job.cancelled.isDone()) {
+                stream.fail(new TimeoutException("Job " + job.jobId + " did not finish in time"));
+            }
+        });
+        return stream;
+    }
+
+    /**
+     * Partitions a job into tasks grouped in row bands and sends them out;
+     * a streaming job holds its bands back and releases them as its stream
+     * is consumed. Returns null when no worker supports the operation.
+     */
+    private Job startJob(String operation, Matrix data, int priority, double weight, ResultStream stream) {
+        boolean streaming = stream != null;
+        List<WorkerConnection> available = getAliveWorkers();
+        available.removeIf(wc -> !wc.capabilities.supports(operation));
+        if (available.isEmpty()) return null;
 
-        int size = data.length;
-        int numWorkers = Math.max(1, available.size());
-        int blockSize = Math.max(1, (size + numWorkers - 1) / numWorkers);
-        List<TaskInfo> tasks = new ArrayList<>();
+        int rows = data.rows();
+        int cols = data.cols();
+        String jobId = "job-" + jobCounter.incrementAndGet();
+        Job job = new Job(jobId, new FairShareQueue.Share(jobId, priority, weight),
+                streaming ? null : new Matrix(rows, cols), cols, stream);
+        job.share.startAt(currentPass());
+        jobs.put(jobId, job);
+        SharedJob shared = createSharedJob(jobId, data, available);
+        int sizeClass = GranularityController.sizeClass(rows, cols);
+        int perWorker = granularity.tasksPerWorker(sizeClass);
+        // one owner per cell of a grid[0] x grid[1] grid; each owner's rows are split again into perWorker tasks
+        int[] grid = partitioning == Partitioning.TILES && shared == null
+                ? tileGrid(rows, cols, available.size())
+                : new int[] { available.size(), 1 };
 
-        for (int i = 0; i < size; i += blockSize) {
-            int endRow = Math.min(i + blockSize, size);
-            String taskId = "task-" + taskCounter.incrementAndGet();
-            String taskData = encodeBlockTask(data, i, endRow);
-            TaskInfo ti = new TaskInfo(taskId, operation, taskData, i);
-            tasks.add(ti);
-            pendingTasks.put(taskId, ti);
+        // {startRow, endRow, row group}; push-mode row groups are weighted per worker
+        List<int[]> panels = new ArrayList<>();
+        int[] groups = scheduling == Scheduling.PUSH && grid[1] == 1
+                ? weightedCuts(rows, weights(available))
+                : evenCuts(rows, grid[0]);
+        for (int g = 0; g + 1 < groups.length; g++) {
+            int[] sub = evenCuts(groups[g + 1] - groups[g], perWorker);
+            for (int i = 0; i + 1 < sub.length; i++) {
+                panels.add(new int[] { groups[g] + sub[i], groups[g] + sub[i + 1], g });
+            }
+        }
+        Band[] bands = new Band[panels.size()];
+        for (int i = 0; i < bands.length; i++) {
+            int[] panel = panels.get(i);
+            if (panel[0] == panel[1]) continue;
+            bands[i] = new Band(panel[0], panel[1]);
+            if (!streaming) bands[i].buffer = job.output.rowBlock(panel[0], panel[1]);
+            job.bands.add(bands[i]);
         }
+        int[] colCuts = evenCuts(cols, grid[1]);
+        List<TaskInfo> tasks = job.tasks;
 
+        for (int j = 0; j + 1 < colCuts.length; j++) {
+            int c = colCuts[j];
+            int endCol = colCuts[j + 1];
+            Operand operand = new Operand(jobId, endCol - c == cols ? data : data.block(0, rows, c, endCol));
+            for (int i = 0; i < bands.length; i++) {
+                if (bands[i] == null) continue;
+                int[] panel = panels.get(i);
+                String taskId = "task-" + taskCounter.incrementAndGet();
+                TaskInfo ti = new TaskInfo(taskId, job, bands[i], operation, operand, data, panel[0], panel[1],
+                        c, endCol, shared);
+                if (scheduling == Scheduling.PUSH) {
+                    ti.assignedWorker = available.get(panel[2] * grid[1] + j).workerId;
+                }
+                tasks.add(ti);
+                bands[i].tasks.add(ti);
+            }
+        }
+        for (Band band : job.bands) {
+            band.remaining.set(band.tasks.size());
+        }
+        long jobStart = System.nanoTime();
+
+        CompletableFuture<?>[] results = new CompletableFuture<?>[tasks.size()];
         for (int i = 0; i < tasks.size(); i++) {
             TaskInfo t = tasks.get(i);
-            WorkerConnection wc = available.get(i % available.size());
-            t.assignedWorker = wc.workerId;
+            // a streaming job only finishes once its last band has been emitted
+            results[i] = streaming ? t.result.thenRun(() -> bandDone(job, t.band)) : t.result;
+        }
+        if (streaming) {
+            job.held.addAll(job.bands);
+            releaseBands(job, available.size() * DISPATCH_DEPTH);
+        } else {
+            dispatch(new ArrayList<>(tasks));
+        }
+
+        CompletableFuture<Object> done = CompletableFuture.anyOf(CompletableFuture.allOf(results), job.cancelled,
+                job.expired);
+        // a streaming job's deadline restarts with each band instead, so a slow subscriber does not use it up
+        if (!streaming) done = done.completeOnTimeout(null, jobTimeoutMs, TimeUnit.MILLISECONDS);
+        done.whenComplete((v, e) -> {
+            try {
+                systemThreads.execute(() ->
+                        job.finished.complete(finishJob(job, sizeClass, perWorker, jobStart, shared)));
+            } catch (RejectedExecutionException stopped) {
+                // shut down mid-job: release the caller with whatever has arrived
+                job.finished.complete(false);
+            }
+        });
+        return job;
+    }
+
+    /** Cancels a finished or abandoned job's leftover work; true if every task completed. */
+    private boolean finishJob(Job job, int sizeClass, int perWorker, long jobStart, SharedJob shared) {
+        List<TaskInfo> tasks = job.tasks;
+        stopIdleDeadline(job);
+        for (TaskInfo t : tasks) {
+            pendingTasks.remove(t.taskId);
+            t.cancelDeadline();
+            if (!t.attempts.isEmpty()) cancelAttempts(t);
+        }
+        boolean complete = !job.cancelled.isDone() && tasks.stream().allMatch(t -> t.result.isDone());
+        recordGranularity(sizeClass, perWorker, tasks, jobStart);
+        releaseJob(job);
+        if (shared != null) shared.delete();
+        return complete;
+    }
+
+    /** Hands tasks to workers: queued for pull mode, otherwise to each task's planned owner. */
+    private void dispatch(List<TaskInfo> tasks) {
+        for (TaskInfo t : tasks) {
+            pendingTasks.put(t.taskId, t);
+        }
+        if (scheduling == Scheduling.PULL) {
+            synchronized (taskQueue) {
+                taskQueue.addAll(tasks);
+            }
+            for (WorkerConnection wc : getAliveWorkers()) dispatchQueued(wc);
+            return;
+        }
+        Map<WorkerConnection, List<TaskInfo>> assignments = new HashMap<>();
+        for (TaskInfo t : tasks) {
+            WorkerConnection wc = workers.get(t.assignedWorker);
+            if (wc == null || !wc.alive) {
+                reassignTask(t);
+                continue;
+            }
             t.retryCount = 0;
-            submitTaskAsync(wc, t);
+            assignments.computeIfAbsent(wc, k -> new ArrayList<>()).add(t);
         }
+        assignments.forEach(this::submitBatchAsync);
+    }
 
-        long deadline = System.currentTimeMillis() + 60000;
-        while (!allTasksComplete(tasks) && System.currentTimeMillis() < deadline) {
-            try { Thread.sleep(20); } catch (InterruptedException ignored) { break; }
-            reassignFailedTasks(tasks);
+    /** Gives up to {@code count} held bands of a streaming job a buffer and sends their tasks. */
+    private void releaseBands(Job job, int count) {
+        if (job.cancelled.isDone()) return;
+        List<TaskInfo> batch = new ArrayList<>();
+        synchronized (job.held) {
+            for (int i = 0; i < count && !job.held.isEmpty(); i++) {
+                Band band = job.held.poll();
+                band.buffer = new Matrix(band.endRow - band.startRow, job.cols);
+                batch.addAll(band.tasks);
+                job.computing++;
+            }
+            if (!batch.isEmpty()) restartIdleDeadline(job);
         }
+        if (!batch.isEmpty()) dispatch(batch);
+    }
 
-        return aggregateResults(data, tasks);
+    private void bandDone(Job job, Band band) {
+        if (band.remaining.decrementAndGet() != 0) return;
+        Matrix rows = band.buffer;
+        band.buffer = null;
+        job.stream.emit(band.startRow, rows);
+        synchronized (job.held) {
+            if (job.computing > 0) job.computing--;
+            restartIdleDeadline(job);
+        }
     }
 
-    private List<WorkerConnection> getAliveWorkers() {
-        List<WorkerConnection> alive = new ArrayList<>();
+    /**
+     * Gives a streaming job a fresh deadline while it has bands out with
+     * workers, and none while it only waits on its subscriber. Caller holds
+     * the job's held lock.
+     */
+    private void restartIdleDeadline(Job job) {
+        if (job.idleDeadline != null) job.idleDeadline.cancel();
+        job.idleDeadline = null;
+        if (job.computing == 0 || job.expired.isDone()) return;
+        try {
+            job.idleDeadline = timers.schedule(() -> job.expired.complete(null), jobTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {}
+    }
+
+    private void stopIdleDeadline(Job job) {
+        synchronized (job.held) {
+            job.computing = 0;
+            restartIdleDeadline(job);
+        }
+    }
+
+    public void setSharedMatrixDir(Path dir) {
+        this.sharedMatrixDir = dir;
+    }
+
+    /** Enables (or, with null, disables) answering repeated inputs from a result cache. */
+    public void setResultCache(ResultCache cache) {
+        this.resultCache = cache;
+    }
+
+    public void setPartitioning(Partitioning partitioning) {
+        this.partitioning = partitioning;
+    }
+
+    public void setScheduling(Scheduling scheduling) {
+        this.scheduling = scheduling;
+    }
+
+    /**
+     * Sets how many times its expected duration a task may run before a
+     * speculative copy is launched.
+     */
+    public void setSpeculationFactor(double factor) {
+        this.speculationFactor = Math.max(1.0, factor);
+    }
+
+    /**
+     * Sets how long a worker may stay silent before it is sent an explicit
+     * HEARTBEAT; applies to workers that register afterwards.
+     */
+    public void setHeartbeatIdleMs(long idleMs) {
+        this.heartbeatIdleMs = Math.max(1, idleMs);
+    }
+
+    /**
+     * Sets how long a job may run, or for a streaming job how long it may go
+     * without finishing a band while bands are out with workers.
+     */
+    public void setJobTimeoutMs(long timeoutMs) {
+        this.jobTimeoutMs = Math.max(1, timeoutMs);
+    }
+
+    /**
+     * Relative speed of each worker: measured GFLOPS when every worker
+     * reported one, otherwise core count.
+     */
+    private static double[] weights(List<WorkerConnection> available) {
+        boolean measured = true;
+        for (WorkerConnection wc : available) {
+            measured &= wc.capabilities.gflops() > 0;
+        }
+        double[] weights = new double[available.size()];
+        for (int i = 0; i < weights.length; i++) {
+            WorkerCapabilities caps = available.get(i).capabilities;
+            weights[i] = measured ? caps.gflops() : Math.max(1, caps.cores());
+        }
+        return weights;
+    }
+
+    /** Splits [0, n) into parts sized in proportion to the weights. */
+    static int[] weightedCuts(int n, double[] weights) {
+        double total = 0;
+        for (double w : weights) total += w;
+        int[] cuts = new int[weights.length + 1];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cuts[i + 1] = (int) Math.round(n * sum / total);
+        }
+        cuts[weights.length] = n;
+        return cuts;
+    }
+
+    /** Splits [0, n) into at most the given number of equal parts. */
+    static int[] evenCuts(int n, int parts) {
+        int block = Math.max(1, (n + parts - 1) / parts);
+        int count = Math.max(1, (n + block - 1) / block);
+        int[] cuts = new int[count + 1];
+        for (int i = 1; i <= count; i++) {
+            cuts[i] = Math.min(n, i * block);
+        }
+        return cuts;
+    }
+
+    /**
+     * Picks a row x column ownership grid for a rows x cols result over the
+     * given number of workers. Each worker owns one tile and receives its A
+     * row panel and B column panel once, so the factorization minimizing
+     * rows/pr + cols/pc minimizes per-worker bytes; ties go to more row
+     * panels, which are contiguous.
+     */
+    static int[] tileGrid(int rows, int cols, int workers) {
+        int[] best = { Math.max(1, workers), 1 };
+        double bestCost = Double.MAX_VALUE;
+        for (int pr = workers; pr >= 1; pr--) {
+            if (workers % pr != 0) continue;
+            int pc = workers / pr;
+            if (pr > Math.max(1, rows) || pc > Math.max(1, cols)) continue;
+            double cost = (double) rows / pr + (double) cols / pc;
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = new int[] { pr, pc };
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Writes a job's input into a memory-mapped file when at least one
+     * co-located worker can read it; returns null otherwise.
+     */
+    private SharedJob createSharedJob(String jobId, Matrix data, List<WorkerConnection> available) {
+        if (sharedMatrixDir == null || data.rows() == 0) return null;
+        boolean anyShared = false;
+        for (WorkerConnection wc : available) {
+            anyShared |= wc.sharesMemory();
+        }
+        if (!anyShared) return null;
+
+        int cols = data.cols();
+        long bytes = (long) data.rows() * cols * Integer.BYTES;
+        try {
+            SharedMatrixRegion input = SharedMatrixRegion.create(sharedMatrixDir.resolve(jobId + "-in.mat"), bytes);
+            input.writeRows(0, data, 0, data.rows());
+            SharedMatrixRegion output = SharedMatrixRegion.create(sharedMatrixDir.resolve(jobId + "-out.mat"), bytes);
+            return new SharedJob(input, output, data.rows(), cols);
+        } catch (IOException e) {
+            System.err.println("Shared matrix setup failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Feeds a finished job's per-task overhead and per-worker finish spread
+     * to the granularity controller. Jobs with retries, timeouts or tasks
+     * that did not report compute time are skipped.
+     */
+    private void recordGranularity(int sizeClass, int perWorker, List<TaskInfo> tasks, long jobStart) {
+        long overhead = 0;
+        long compute = 0;
+        Map<String, Long> finish = new HashMap<>();
+        for (TaskInfo t : tasks) {
+            if (t.computeNanos <= 0 || t.retryCount > 0 || !t.result.isDone()) return;
+            overhead += t.doneNanos - t.sentNanos - t.queueNanos - t.computeNanos;
+            compute += t.computeNanos;
+            finish.merge(t.assignedWorker, t.doneNanos - jobStart, Math::max);
+        }
+        if (finish.isEmpty()) return;
+        long latest = 0;
+        double mean = 0;
+        for (long f : finish.values()) {
+            latest = Math.max(latest, f);
+            mean += (double) f / finish.size();
+        }
+        granularity.record(sizeClass, perWorker, overhead, compute, latest > 0 ? (latest - mean) / latest : 0);
+    }
+
+    /**
+     * Drops every reference the master holds to a finished job's tasks so
+     * their payloads and operands can be collected; only the output lives on.
+     */
+    private void releaseJob(Job job) {
+        jobs.remove(job.jobId);
+        synchronized (taskQueue) {
+            taskQueue.removeIf(t -> t.job == job);
+        }
         for (WorkerConnection wc : workers.values()) {
-            if (wc.alive) alive.add(wc);
+            synchronized (wc.backlog) {
+                wc.backlog.removeIf(t -> t.job == job);
+            }
         }
-        return alive;
+        evictJob(job.jobId);
+        synchronized (job.held) {
+            job.held.clear();
+        }
+        job.bands.clear();
+        job.tasks.clear();
     }
 
-    private void submitTaskAsync(WorkerConnection wc, TaskInfo task) {
-        systemThreads.submit(() -> {
+    /** Lowest pass among running jobs, where a new job starts. */
+    private double currentPass() {
+        double pass = Double.MAX_VALUE;
+        for (Job j : jobs.values()) {
+            pass = Math.min(pass, j.share.pass());
+        }
+        return jobs.isEmpty() ? 0 : pass;
+    }
+
+    private void evictJob(String jobId) {
+        String prefix = jobId + ":";
+        for (WorkerConnection wc : workers.values()) {
+            if (!wc.operands.removeIf(key -> key.startsWith(prefix))) continue;
             try {
-                Message req = new Message("RPC_REQUEST", studentId, null);
-                req.setPayloadFromString(task.taskId + "|" + task.operation + "|" + task.data);
-                wc.send(req);
-                task.sentTime = System.currentTimeMillis();
+                Message evict = new Message("OPERAND_EVICT", studentId, null);
+                evict.setPayloadFromString(jobId);
+                wc.send(evict);
             } catch (Exception e) {
-                wc.alive = false;
+                workerLost(wc);
             }
-        });
+        }
     }
 
-    private boolean allTasksComplete(List<TaskInfo> tasks) {
-        for (TaskInfo t : tasks) {
-            if (!taskResults.containsKey(t.taskId)) return false;
+    private List<WorkerConnection> getAliveWorkers() {
+        List<WorkerConnection> alive = new ArrayList<>();
+        for (WorkerConnection wc : workers.values()) {
+            if (wc.alive) alive.add(wc);
         }
-        return true;
+        return alive;
     }
 
-    private void reassignFailedTasks(List<TaskInfo> tasks) {
-        long now = System.currentTimeMillis();
-        List<WorkerConnection> alive = getAliveWorkers();
-        if (alive.isEmpty()) return;
+    private void submitTaskAsync(WorkerConnection wc, TaskInfo task) {
+        submitBatchAsync(wc, Collections.singletonList(task));
+    }
 
-        int workerIdx = 0;
-        for (TaskInfo t : tasks) {
-            if (taskResults.containsKey(t.taskId)) continue;
+    /**
+     * Queues tasks for a worker and sends as many as its credits allow;
+     * the rest wait in the worker's backlog until results return credits,
+     * then go out in fair-share order across jobs. Never blocks the caller.
+     */
+    private void submitBatchAsync(WorkerConnection wc, List<TaskInfo> batch) {
+        synchronized (wc.backlog) {
+            wc.backlog.addAll(batch);
+        }
+        drainBacklog(wc);
+    }
 
-            WorkerConnection assigned = workers.get(t.assignedWorker);
-            boolean workerDead = assigned == null || !assigned.alive;
-            boolean timedOut = (now - t.sentTime) > TASK_TIMEOUT_MS;
+    private void drainBacklog(WorkerConnection wc) {
+        List<TaskInfo> ready = new ArrayList<>();
+        synchronized (wc.backlog) {
+            wc.backlog.removeIf(t -> t.result.isDone() || !pendingTasks.containsKey(t.taskId));
+            TaskInfo t;
+            while ((t = wc.backlog.peek()) != null && wc.acquireCredit(t)) {
+                ready.add(wc.backlog.poll());
+            }
+        }
+        if (ready.isEmpty()) return;
+        try {
+            systemThreads.submit(() -> transmit(wc, ready));
+        } catch (RejectedExecutionException ignored) {}
+    }
 
-            if (workerDead || (timedOut && t.retryCount < 5)) {
-                WorkerConnection newWorker = alive.get(workerIdx % alive.size());
-                workerIdx++;
-                t.assignedWorker = newWorker.workerId;
-                t.retryCount++;
-                submitTaskAsync(newWorker, t);
+    /**
+     * Sends tasks that already hold credits: SHARED_TASK descriptors to a
+     * co-located worker, otherwise TASK_BATCH frames of up to MAX_BATCH_BYTES
+     * each, or a plain RPC_REQUEST for a lone task.
+     */
+    private void transmit(WorkerConnection wc, List<TaskInfo> batch) {
+        try {
+            int from = 0;
+            while (from < batch.size()) {
+                TaskInfo first = batch.get(from);
+                if (first.shared != null && wc.sharesMemory()) {
+                    wc.operands.add(first.operand.key);
+                    wc.send(new Message("SHARED_TASK", studentId, first.sharedPayload()));
+                    markSent(wc, first);
+                    from++;
+                    continue;
+                }
+                int to = from;
+                int size = Integer.BYTES;
+                while (to < batch.size() && (to == from || size + batch.get(to).payload().length <= MAX_BATCH_BYTES)
+                        && (batch.get(to).shared == null || !wc.sharesMemory())) {
+                    size += Integer.BYTES + batch.get(to).payload().length;
+                    to++;
+                }
+                List<TaskInfo> chunk = batch.subList(from, to);
+                if (chunk.size() == 1) {
+                    wc.ensureOperand(first.operand, studentId);
+                    wc.send(new Message("RPC_REQUEST", studentId, first.payload()));
+                } else {
+                    ByteBuffer buf = TileCodec.wrap(new byte[size]);
+                    buf.putInt(chunk.size());
+                    for (TaskInfo t : chunk) {
+                        wc.ensureOperand(t.operand, studentId);
+                        byte[] data = t.payload();
+                        buf.putInt(data.length);
+                        buf.put(data);
+                    }
+                    wc.send(new Message("TASK_BATCH", studentId, buf.array()));
+                }
+                for (TaskInfo t : chunk) markSent(wc, t);
+                from = to;
             }
+        } catch (Exception e) {
+            workerLost(wc);
         }
     }
 
-    private int[][] aggregateResults(int[][] original, List<TaskInfo> tasks) {
-        int size = original.length;
-        int cols = original.length > 0 ? original[0].length : 0;
-        int[][] result = new int[size][];
+    private void markSent(WorkerConnection wc, TaskInfo t) {
+        t.sentTime = System.currentTimeMillis();
+        t.sentNanos = System.nanoTime();
+        t.attempts.put(wc.workerId, t.sentNanos);
+        scheduleDeadline(t, expectedMillis(wc, t));
+    }
 
-        for (TaskInfo t : tasks) {
-            String res = taskResults.get(t.taskId);
-            if (res == null || res.isEmpty()) continue;
-            int[][] block = decodeMatrix(res);
-            for (int i = 0; i < block.length && (t.startRow + i) < size; i++) {
-                result[t.startRow + i] = block[i];
+    /**
+     * Tops a worker up from the shared task queue to its advertised slot
+     * count plus a small prefetch window, counting tasks it already holds.
+     */
+    private void dispatchQueued(WorkerConnection wc) {
+        if (scheduling != Scheduling.PULL || !wc.alive) return;
+        synchronized (wc) {
+            int held = wc.held();
+            List<TaskInfo> batch = new ArrayList<>();
+            synchronized (taskQueue) {
+                TaskInfo t;
+                while (held + batch.size() < wc.slots + PULL_PREFETCH
+                        && (t = taskQueue.poll(q -> wc.capabilities.supports(q.operation))) != null) {
+                    if (t.result.isDone() || !pendingTasks.containsKey(t.taskId)) continue;
+                    t.assignedWorker = wc.workerId;
+                    t.retryCount = 0;
+                    batch.add(t);
+                }
             }
+            if (!batch.isEmpty()) submitBatchAsync(wc, batch);
         }
+    }
 
-        for (int i = 0; i < size; i++) {
-            if (result[i] == null) result[i] = new int[cols];
+    private void scheduleDeadline(TaskInfo task, long delayMs) {
+        if (task.result.isDone()) return;
+        task.cancelDeadline();
+        try {
+            task.deadline = timers.schedule(() -> onTaskDeadline(task), delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {}
+    }
+
+    /**
+     * How long a task just sent to a worker may run before it counts as a
+     * straggler: the cluster's 90th-percentile time per unit of work applied
+     * to this task plus a slot-share of the work queued ahead of it on that
+     * worker, times the speculation factor. Falls back to TASK_TIMEOUT_MS
+     * until any task has finished.
+     */
+    private long expectedMillis(WorkerConnection wc, TaskInfo task) {
+        double perUnit = latency.percentile(0.9);
+        if (perUnit <= 0) return TASK_TIMEOUT_MS;
+        long ahead = Math.max(0, wc.outstandingWork() - task.work());
+        double nanos = perUnit * (task.work() + (double) ahead / Math.max(1, wc.slots));
+        return Math.max(MIN_SPECULATION_MS, (long) (speculationFactor * nanos / 1_000_000));
+    }
+
+    /**
+     * A task ran past its expected duration: run a speculative copy on the
+     * fastest idle worker, leaving the original running, and keep whichever
+     * result arrives first. Tasks not running anywhere are reassigned.
+     */
+    private void onTaskDeadline(TaskInfo task) {
+        if (task.result.isDone() || task.retryCount >= MAX_RETRIES) return;
+        if (task.attempts.isEmpty()) {
+            reassignTask(task);
+            return;
+        }
+        WorkerConnection idle = fastestIdleWorker(task);
+        if (idle == null) {
+            WorkerConnection current = workers.get(task.assignedWorker);
+            scheduleDeadline(task, current != null ? expectedMillis(current, task) : TASK_TIMEOUT_MS);
+            return;
         }
-        return result;
+        task.assignedWorker = idle.workerId;
+        task.retryCount++;
+        submitTaskAsync(idle, task);
     }
 
-    private String encodeBlockTask(int[][] data, int startRow, int endRow) {
-        StringBuilder sb = new StringBuilder(data.length * data[0].length * 4);
-        for (int i = startRow; i < endRow; i++) {
-            for (int j = 0; j < data[i].length; j++) {
-                sb.append(data[i][j]);
-                if (j < data[i].length - 1) sb.append(",");
+    private WorkerConnection fastestIdleWorker(TaskInfo task) {
+        double unknown = latency.percentile(0.5);
+        WorkerConnection best = null;
+        double bestSpeed = Double.MAX_VALUE;
+        for (WorkerConnection wc : getAliveWorkers()) {
+            if (wc.held() > 0 || !wc.capabilities.supports(task.operation)) continue;
+            double perUnit = latency.ewma(wc.workerId);
+            if (perUnit <= 0) perUnit = unknown;
+            if (perUnit < bestSpeed) {
+                bestSpeed = perUnit;
+                best = wc;
             }
-            sb.append(";");
         }
-        sb.append("#;");
-        for (int i = 0; i < data.length; i++) {
-            for (int j = 0; j < data[i].length; j++) {
-                sb.append(data[i][j]);
-                if (j < data[i].length - 1) sb.append(",");
-            }
-            if (i < data.length - 1) sb.append(";");
+        return best;
+    }
+
+    private void reassignTask(TaskInfo task) {
+        if (task.result.isDone()) return;
+        List<WorkerConnection> alive = getAliveWorkers();
+        alive.removeIf(wc -> !wc.capabilities.supports(task.operation));
+        if (alive.isEmpty()) {
+            scheduleDeadline(task, TASK_TIMEOUT_MS);
+            return;
         }
-        return sb.toString();
+
+        WorkerConnection newWorker = alive.get(Math.floorMod(reassignCursor.getAndIncrement(), alive.size()));
+        if (newWorker.workerId.equals(task.assignedWorker) && alive.size() > 1) {
+            newWorker = alive.get(Math.floorMod(reassignCursor.getAndIncrement(), alive.size()));
+        }
+        task.assignedWorker = newWorker.workerId;
+        task.retryCount++;
+        submitTaskAsync(newWorker, task);
     }
 
-    private int[][] decodeMatrix(String str) {
-        if (str == null || str.isEmpty()) return new int[0][0];
-        String[] rows = str.split(";");
-        int[][] mat = new int[rows.length][];
-        for (int i = 0; i < rows.length; i++) {
-            if (rows[i].isEmpty()) {
-                mat[i] = new int[0];
-                continue;
-            }
-            String[] vals = rows[i].split(",");
-            mat[i] = new int[vals.length];
-            for (int j = 0; j < vals.length; j++) {
-                mat[i][j] = Integer.parseInt(vals[j].trim());
+    private void workerLost(WorkerConnection wc) {
+        wc.alive = false;
+        if (!workers.remove(wc.workerId, wc)) return;
+        latency.forget(wc.workerId);
+        for (TaskInfo t : pendingTasks.values()) {
+            boolean running = t.attempts.remove(wc.workerId) != null;
+            if (!running && !wc.workerId.equals(t.assignedWorker)) continue;
+            Iterator<String> others = t.attempts.keySet().iterator();
+            if (others.hasNext()) {
+                t.assignedWorker = others.next();
+            } else {
+                reassignTask(t);
             }
         }
-        return mat;
+    }
+
+    private static byte[] encodeBlockTask(String taskId, String operation, Operand operand,
+                                   Matrix data, int startRow, int endRow) {
+        int cols = data.cols();
+        int size = TileCodec.stringBytes(taskId) + TileCodec.stringBytes(operation)
+                + TileCodec.stringBytes(operand.jobId) + Long.BYTES
+                + TileCodec.tileBytes(endRow - startRow, cols);
+        byte[] payload = new byte[size];
+        ByteBuffer buf = TileCodec.wrap(payload);
+        TileCodec.putString(buf, taskId);
+        TileCodec.putString(buf, operation);
+        TileCodec.putString(buf, operand.jobId);
+        buf.putLong(operand.hash);
+        TileCodec.writeTile(buf, data.rowBlock(startRow, endRow));
+        return payload;
+    }
+
+    public void setTransport(Transport transport) {
+        this.transport = transport;
     }
 
     public void listen(int port) throws IOException {
+        if (transport == Transport.NIO) {
+            listenNio(port);
+            return;
+        }
         serverSocket = new ServerSocket(port);
         serverSocket.setSoTimeout(500);
         serverSocket.setReceiveBufferSize(BUFFER_SIZE);
@@ -216,40 +869,72 @@ public class Master {
                 }
             }
         });
+    }
+
+    private void listenNio(int port) throws IOException {
+        nio = new NioTransport(IO_THREADS, new NioTransport.Handler() {
+            @Override
+            public void onFrame(NioTransport.Connection conn, Message msg) {
+                WorkerConnection wc = (WorkerConnection) conn.attachment;
+                if (wc != null) {
+                    handleWorkerMessage(wc, msg);
+                } else if ("REGISTER_WORKER".equals(msg.messageType)) {
+                    wc = new WorkerConnection(msg.studentId, conn, UUID.randomUUID().toString().substring(0, 8));
+                    wc.capabilities = WorkerCapabilities.parse(msg.getPayloadAsString());
+                    wc.colocated = conn.remoteAddress() != null && conn.remoteAddress().isLoopbackAddress();
+                    conn.attachment = wc;
+                    registerWorker(wc);
+                } else if (!"CONNECT".equals(msg.messageType)) {
+                    conn.close();
+                }
+            }
+
+            @Override
+            public void onClose(NioTransport.Connection conn) {
+                WorkerConnection wc = (WorkerConnection) conn.attachment;
+                if (wc != null) workerLost(wc);
+            }
+        });
+        nio.bind(port);
+        running.set(true);
+        System.out.println("Master listening on port " + port + " (nio)");
+    }
 
-        systemThreads.submit(this::heartbeatLoop);
+    private void registerWorker(WorkerConnection wc) {
+        long idle = heartbeatIdleMs;
+        wc.liveness = new PhiAccrualDetector(idle, PHI_MIN_STDDEV_MS, 2 * idle, System.currentTimeMillis());
+        workers.put(wc.workerId, wc);
+        try {
+            Message ack = new Message("WORKER_ACK", studentId, null);
+            ack.setPayloadFromString(wc.token);
+            wc.send(ack);
+            System.out.println("Worker registered: " + wc.workerId);
+            schedule(() -> heartbeatTick(wc), idle);
+            schedule(() -> livenessTick(wc), LIVENESS_CHECK_MS);
+        } catch (IOException e) {
+            workerLost(wc);
+            wc.close();
+        }
     }
 
     private void handleConnection(Socket client) {
         try {
-            DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream(), BUFFER_SIZE));
-            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(client.getOutputStream(), BUFFER_SIZE));
-
-            int len = in.readInt();
-            byte[] data = new byte[len];
-            in.readFully(data);
-            Message msg = Message.unpack(data);
+            FrameStream frames = new FrameStream(client, BUFFER_SIZE, systemThreads);
+            Message msg = frames.receive();
 
-            if ("CONNECT".equals(msg.messageType)) {
-                len = in.readInt();
-                data = new byte[len];
-                in.readFully(data);
-                msg = Message.unpack(data);
+            if (msg != null && "CONNECT".equals(msg.messageType)) {
+                msg = frames.receive();
             }
 
-            if ("REGISTER_WORKER".equals(msg.messageType)) {
+            if (msg != null && "REGISTER_WORKER".equals(msg.messageType)) {
                 String workerId = msg.studentId;
                 String token = UUID.randomUUID().toString().substring(0, 8);
 
-                WorkerConnection wc = new WorkerConnection(workerId, client, in, out, token);
-                workers.put(workerId, wc);
-
-                Message ack = new Message("WORKER_ACK", studentId, null);
-                ack.setPayloadFromString(token);
-                wc.send(ack);
-
-                System.out.println("Worker registered: " + workerId);
-                listenToWorker(wc);
+                WorkerConnection wc = new WorkerConnection(workerId, client, frames, token);
+                wc.capabilities = WorkerCapabilities.parse(msg.getPayloadAsString());
+                wc.colocated = client.getInetAddress().isLoopbackAddress();
+                registerWorker(wc);
+                if (wc.alive) listenToWorker(wc);
             }
         } catch (Exception e) {
             try { client.close(); } catch (IOException ignored) {}
@@ -260,77 +945,186 @@ public class Master {
         systemThreads.submit(() -> {
             while (running.get() && wc.alive) {
                 try {
-                    int len = wc.in.readInt();
-                    if (len <= 0 || len > 100_000_000) {
-                        wc.alive = false;
-                        break;
-                    }
-                    byte[] data = new byte[len];
-                    wc.in.readFully(data);
-                    Message msg = Message.unpack(data);
-
-                    if (msg == null) continue;
-
-                    switch (msg.messageType) {
-                        case "TASK_COMPLETE":
-                            String payload = msg.getPayloadAsString();
-                            int sep = payload.indexOf("|");
-                            if (sep > 0) {
-                                String taskId = payload.substring(0, sep);
-                                String result = payload.substring(sep + 1);
-                                taskResults.put(taskId, result);
-                                pendingTasks.remove(taskId);
-                            }
-                            break;
-                        case "TASK_ERROR":
-                            System.err.println("Task error from " + wc.workerId + ": " + msg.getPayloadAsString());
-                            break;
-                        case "HEARTBEAT":
-                            wc.lastHeartbeat = System.currentTimeMillis();
-                            break;
-                        case "REGISTER_CAPABILITIES":
-                            wc.capabilities = msg.getPayloadAsString();
-                            break;
-                    }
+                    Message msg = wc.frames.receive();
+                    if (msg == null) break;
+                    handleWorkerMessage(wc, msg);
                 } catch (SocketException e) {
-                    wc.alive = false;
                     break;
                 } catch (Exception e) {
-                    wc.alive = false;
                     break;
                 }
             }
-            workers.remove(wc.workerId);
-            try { wc.socket.close(); } catch (IOException ignored) {}
+            workerLost(wc);
+            wc.close();
         });
     }
 
-    private void heartbeatLoop() {
-        while (running.get()) {
-            try {
-                Thread.sleep(1000);
-                reconcileState();
-            } catch (InterruptedException ignored) { break; }
+    /** Any frame proves the worker alive; HEARTBEAT frames only matter on idle connections. */
+    private void handleWorkerMessage(WorkerConnection wc, Message msg) {
+        wc.liveness.heartbeat(System.currentTimeMillis());
+        switch (msg.messageType) {
+            case "TASK_COMPLETE":
+                completeTask(wc, TileCodec.payload(msg));
+                break;
+            case "TASK_COMPLETE_BATCH":
+                ByteBuffer batch = TileCodec.payload(msg);
+                int count = batch.getInt();
+                for (int i = 0; i < count; i++) {
+                    int len = batch.getInt();
+                    ByteBuffer entry = batch.slice().order(batch.order());
+                    entry.limit(len);
+                    batch.position(batch.position() + len);
+                    completeTask(wc, entry);
+                }
+                break;
+            case "TASK_COMPLETE_SHARED":
+                for (String taskId : msg.getPayloadAsString().split("\n")) {
+                    completeSharedTask(wc, taskId);
+                }
+                break;
+            case "TASK_ERROR":
+                String error = msg.getPayloadAsString();
+                int bar = error.indexOf('|');
+                if (bar >= 0) failAttempt(wc, error.substring(0, bar));
+                System.err.println("Task error from " + wc.workerId + ": " + error);
+                break;
+            case "HEARTBEAT":
+                break;
+            case "REGISTER_CAPABILITIES":
+                wc.capabilities = WorkerCapabilities.parse(msg.getPayloadAsString()).merge(wc.capabilities);
+                break;
+            case "WORK_REQUEST":
+                wc.slots = Math.max(1, Integer.parseInt(msg.getPayloadAsString().trim()));
+                dispatchQueued(wc);
+                break;
+        }
+    }
+
+    /**
+     * A worker gave up on a task; unless another attempt is still running,
+     * retry it after a backoff that doubles with each retry.
+     */
+    private void failAttempt(WorkerConnection wc, String taskId) {
+        if (wc.releaseCredit(taskId)) drainBacklog(wc);
+        TaskInfo task = pendingTasks.get(taskId);
+        if (task == null || task.attempts.remove(wc.workerId) == null || !task.attempts.isEmpty()) return;
+        if (task.retryCount < MAX_RETRIES) {
+            schedule(() -> reassignTask(task), Math.min(TASK_TIMEOUT_MS, RETRY_BACKOFF_MS << task.retryCount));
+        }
+    }
+
+    private void completeTask(WorkerConnection wc, ByteBuffer payload) {
+        String taskId = TileCodec.getString(payload);
+        if (wc.releaseCredit(taskId)) drainBacklog(wc);
+        TaskInfo task = pendingTasks.remove(taskId);
+        if (task != null) {
+            task.cancelDeadline();
+            task.doneNanos = System.nanoTime();
+            task.queueNanos = payload.getLong();
+            task.computeNanos = payload.getLong();
+            recordLatency(wc, task, task.queueNanos);
+            TileCodec.readInto(payload, task.output());
+            task.result.complete(null);
+        }
+    }
+
+    /**
+     * Records the winning attempt's service time and cancels every other
+     * attempt; a late duplicate result finds no pending task.
+     */
+    private void recordLatency(WorkerConnection wc, TaskInfo task, long queueNanos) {
+        Long sent = task.attempts.remove(wc.workerId);
+        if (sent != null) latency.record(wc.workerId, task.doneNanos - sent - queueNanos, task.work());
+        cancelAttempts(task);
+    }
+
+    private void cancelAttempts(TaskInfo task) {
+        for (String workerId : task.attempts.keySet()) {
+            WorkerConnection other = workers.get(workerId);
+            if (other == null) continue;
+            other.releaseCredit(task.taskId);
+            drainBacklog(other);
+            systemThreads.submit(() -> {
+                try {
+                    Message cancel = new Message("TASK_CANCEL", studentId, null);
+                    cancel.setPayloadFromString(task.taskId);
+                    other.send(cancel);
+                } catch (Exception e) {
+                    workerLost(other);
+                }
+            });
+        }
+        task.attempts.clear();
+    }
+
+    private void completeSharedTask(WorkerConnection wc, String taskId) {
+        if (wc.releaseCredit(taskId)) drainBacklog(wc);
+        TaskInfo task = pendingTasks.get(taskId);
+        if (task != null && task.shared != null && pendingTasks.remove(taskId, task)) {
+            task.cancelDeadline();
+            task.doneNanos = System.nanoTime();
+            recordLatency(wc, task, 0);
+            SharedJob shared = task.shared;
+            shared.output.readRows((long) task.startRow * shared.cols * Integer.BYTES, task.output());
+            task.result.complete(null);
+        }
+    }
+
+    private void schedule(Runnable task, long delayMs) {
+        try {
+            timers.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {}
+    }
+
+    private boolean registered(WorkerConnection wc) {
+        return running.get() && wc.alive && workers.get(wc.workerId) == wc;
+    }
+
+    /** Probes the worker only once nothing has been heard from it for the idle interval. */
+    private void heartbeatTick(WorkerConnection wc) {
+        if (!registered(wc)) return;
+        long idle = heartbeatIdleMs;
+        long quiet = System.currentTimeMillis() - wc.liveness.lastHeardMillis();
+        if (quiet >= idle) {
+            sendHeartbeat(wc);
+            quiet = 0;
+        }
+        schedule(() -> heartbeatTick(wc), idle - quiet);
+    }
+
+    private void livenessTick(WorkerConnection wc) {
+        if (!registered(wc)) return;
+        if (wc.liveness.phi(System.currentTimeMillis()) > PHI_THRESHOLD) {
+            workerLost(wc);
+        } else {
+            schedule(() -> livenessTick(wc), LIVENESS_CHECK_MS);
+        }
+    }
+
+    private void sendHeartbeat(WorkerConnection wc) {
+        try {
+            Message hb = new Message("HEARTBEAT", studentId, null);
+            wc.send(hb);
+        } catch (Exception e) {
+            workerLost(wc);
         }
     }
 
+    /**
+     * Sweeps every worker at once: probes it if idle and drops it if dead
+     * or suspected. Routine liveness runs on per-worker timers; this is for
+     * callers that want an immediate check.
+     */
     public void reconcileState() {
         long now = System.currentTimeMillis();
         for (WorkerConnection wc : workers.values()) {
             if (!wc.alive) {
-                workers.remove(wc.workerId);
+                workerLost(wc);
                 continue;
             }
-            try {
-                Message hb = new Message("HEARTBEAT", studentId, null);
-                wc.send(hb);
-            } catch (Exception e) {
-                wc.alive = false;
-                workers.remove(wc.workerId);
-            }
-            if (now - wc.lastHeartbeat > HEARTBEAT_TIMEOUT_MS) {
-                wc.alive = false;
-                workers.remove(wc.workerId);
+            if (now - wc.liveness.lastHeardMillis() >= heartbeatIdleMs) sendHeartbeat(wc);
+            if (wc.liveness.phi(now) > PHI_THRESHOLD) {
+                workerLost(wc);
             }
         }
     }
@@ -341,16 +1135,35 @@ public class Master {
             try {
                 Message shutdown = new Message("SHUTDOWN", studentId, null);
                 wc.send(shutdown);
-                wc.socket.close();
+                wc.closeAfterFlush();
             } catch (Exception ignored) {}
         }
         workers.clear();
         systemThreads.shutdownNow();
+        timers.stop();
+        // cleanups queued on systemThreads are gone; release anyone still waiting on a job
+        for (Job job : jobs.values()) {
+            job.finished.complete(false);
+        }
+        if (nio != null) nio.close();
         try {
             if (serverSocket != null) serverSocket.close();
         } catch (IOException ignored) {}
     }
 
+    /** Port the master accepted connections on, or -1 before {@link #listen}. */
+    public int getPort() {
+        if (nio != null) return nio.localPort();
+        return serverSocket != null ? serverSocket.getLocalPort() : -1;
+    }
+
+    /** Frame bytes sent to each registered worker so far, by worker id. */
+    Map<String, Long> bytesSentPerWorker() {
+        Map<String, Long> sent = new HashMap<>();
+        workers.forEach((id, wc) -> sent.put(id, wc.bytesSent.sum()));
+        return sent;
+    }
+
     public int getWorkerCount() {
         return workers.size();
     }
@@ -369,47 +1182,300 @@ public class Master {
     private static class WorkerConnection {
         String workerId;
         Socket socket;
-        DataInputStream in;
-        DataOutputStream out;
+        FrameStream frames;
+        NioTransport.Connection channel;
         String token;
-        String capabilities;
+        volatile WorkerCapabilities capabilities = WorkerCapabilities.UNKNOWN;
+        volatile int slots = 1;
+        boolean colocated;
         volatile boolean alive = true;
-        volatile long lastHeartbeat;
-        final Object sendLock = new Object();
+        volatile PhiAccrualDetector liveness;
+        final ReentrantLock sendLock = new ReentrantLock();
+        final Set<String> operands = ConcurrentHashMap.newKeySet();
+        /** Encoded frame bytes sent to this worker. */
+        final LongAdder bytesSent = new LongAdder();
+        /** Tasks waiting for credit, in fair-share order; also guards the credit counters. */
+        final FairShareQueue<TaskInfo> backlog = new FairShareQueue<>(t -> t.job.share, TaskInfo::work);
+        private final Map<String, TaskInfo> creditHeld = new HashMap<>();
+        private int creditsUsed;
+        private long creditBytesUsed;
+        private long creditWorkUsed;
 
-        WorkerConnection(String workerId, Socket socket, DataInputStream in, DataOutputStream out, String token) {
+        WorkerConnection(String workerId, Socket socket, FrameStream frames, String token) {
             this.workerId = workerId;
             this.socket = socket;
-            this.in = in;
-            this.out = out;
+            this.frames = frames;
             this.token = token;
-            this.lastHeartbeat = System.currentTimeMillis();
+        }
+
+        WorkerConnection(String workerId, NioTransport.Connection channel, String token) {
+            this.workerId = workerId;
+            this.channel = channel;
+            this.token = token;
+        }
+
+        boolean sharesMemory() {
+            return colocated && capabilities.operations().contains("SHARED_MATRIX");
+        }
+
+        void close() {
+            if (channel != null) {
+                channel.close();
+                return;
+            }
+            try { socket.close(); } catch (IOException ignored) {}
+        }
+
+        /** Closes once frames already sent have been written, so SHUTDOWN reaches the worker. */
+        void closeAfterFlush() {
+            if (channel != null) {
+                channel.closeAfterFlush();
+            } else {
+                frames.close();
+            }
         }
 
         void send(Message msg) throws IOException {
-            synchronized (sendLock) {
-                byte[] data = msg.pack();
-                out.writeInt(data.length);
-                out.write(data);
-                out.flush();
+            bytesSent.add(Integer.BYTES + msg.encodedSize());
+            if (channel != null) {
+                channel.send(msg);
+            } else {
+                frames.send(msg);
+            }
+        }
+
+        /**
+         * Takes one task credit and the task's estimated bytes if the worker
+         * has room within its credits and the dispatch depth; a task always
+         * fits when nothing is outstanding, so an oversized task cannot
+         * stall. Caller holds the backlog lock.
+         */
+        boolean acquireCredit(TaskInfo task) {
+            if (creditHeld.containsKey(task.taskId)) return true;
+            long bytes = task.estimatedBytes();
+            int window = Math.min(capabilities.credits(), slots * DISPATCH_DEPTH);
+            if (!creditHeld.isEmpty() && (creditsUsed >= window
+                    || creditBytesUsed + bytes > capabilities.creditBytes())) {
+                return false;
+            }
+            creditHeld.put(task.taskId, task);
+            creditsUsed++;
+            creditBytesUsed += bytes;
+            creditWorkUsed += task.work();
+            return true;
+        }
+
+        /** Tasks sent and awaiting a result plus those still waiting in the backlog. */
+        int held() {
+            synchronized (backlog) {
+                return creditsUsed + backlog.size();
+            }
+        }
+
+        /** Multiply-adds in tasks sent to this worker and not yet answered or cancelled. */
+        long outstandingWork() {
+            synchronized (backlog) {
+                return creditWorkUsed;
             }
         }
+
+        /** Returns a task's credit; false if it held none (e.g. a late duplicate result). */
+        boolean releaseCredit(String taskId) {
+            synchronized (backlog) {
+                TaskInfo task = creditHeld.remove(taskId);
+                if (task == null) return false;
+                creditsUsed--;
+                creditBytesUsed -= task.estimatedBytes();
+                creditWorkUsed -= task.work();
+                return true;
+            }
+        }
+
+        void ensureOperand(Operand operand, String senderId) throws IOException {
+            if (operands.contains(operand.key)) return;
+            // a lock rather than a monitor, so a blocked virtual sender does not pin its carrier
+            sendLock.lock();
+            try {
+                if (operands.contains(operand.key)) return;
+                send(new Message("OPERAND_PUT", senderId, operand.payload));
+                operands.add(operand.key);
+            } finally {
+                sendLock.unlock();
+            }
+        }
+    }
+
+    private static class Operand {
+        final String jobId;
+        final long hash;
+        final String key;
+        final byte[] payload;
+
+        Operand(String jobId, Matrix matrix) {
+            this.jobId = jobId;
+            this.hash = matrix.contentHash();
+            this.key = TileCodec.operandKey(jobId, hash);
+            this.payload = new byte[TileCodec.stringBytes(jobId) + Long.BYTES
+                    + TileCodec.tileBytes(matrix.rows(), matrix.cols())];
+            ByteBuffer buf = TileCodec.wrap(payload);
+            TileCodec.putString(buf, jobId);
+            buf.putLong(hash);
+            TileCodec.writeTile(buf, matrix);
+        }
+    }
+
+    private static class SharedJob {
+        final SharedMatrixRegion input;
+        final SharedMatrixRegion output;
+        final int rows;
+        final int cols;
+
+        SharedJob(SharedMatrixRegion input, SharedMatrixRegion output, int rows, int cols) {
+            this.input = input;
+            this.output = output;
+            this.rows = rows;
+            this.cols = cols;
+        }
+
+        void delete() {
+            input.delete();
+            output.delete();
+        }
+    }
+
+    /**
+     * A running job: its fair-share claim, its own task table, and the
+     * output tasks decode into, which a streaming job keeps per row band.
+     */
+    private static class Job {
+        final String jobId;
+        final FairShareQueue.Share share;
+        final Matrix output;
+        final int cols;
+        final ResultStream stream;
+        final List<TaskInfo> tasks = new ArrayList<>();
+        final List<Band> bands = new ArrayList<>();
+        /** Streaming bands not yet sent to workers; guarded by itself. */
+        final Queue<Band> held = new ArrayDeque<>();
+        /** Streaming bands sent to workers and not yet emitted; guarded by held. */
+        int computing;
+        /** Guarded by held. */
+        TimingWheel.Timeout idleDeadline;
+        final CompletableFuture<Void> cancelled = new CompletableFuture<>();
+        /** Completes when a streaming job's deadline passes. */
+        final CompletableFuture<Void> expired = new CompletableFuture<>();
+        /** Completes after cleanup; true if every task finished. */
+        final CompletableFuture<Boolean> finished = new CompletableFuture<>();
+
+        Job(String jobId, FairShareQueue.Share share, Matrix output, int cols, ResultStream stream) {
+            this.jobId = jobId;
+            this.share = share;
+            this.output = output;
+            this.cols = cols;
+            this.stream = stream;
+        }
+    }
+
+    /** Full-width rows [startRow, endRow) of a job and the tasks that fill them. */
+    private static class Band {
+        final int startRow;
+        final int endRow;
+        final List<TaskInfo> tasks = new ArrayList<>();
+        final AtomicInteger remaining = new AtomicInteger();
+        volatile Matrix buffer;
+
+        Band(int startRow, int endRow) {
+            this.startRow = startRow;
+            this.endRow = endRow;
+        }
     }
 
     private static class TaskInfo {
         String taskId;
+        final Job job;
+        final Band band;
         String operation;
-        String data;
-        String assignedWorker;
-        long sentTime;
+        Operand operand;
+        Matrix source;
+        SharedJob shared;
+        private byte[] data;
+        volatile String assignedWorker;
+        volatile long sentTime;
+        volatile long sentNanos;
+        volatile long doneNanos;
+        volatile long queueNanos;
+        volatile long computeNanos;
         int startRow;
-        int retryCount;
+        int endRow;
+        int startCol;
+        int endCol;
+        volatile int retryCount;
+        /** Completes once this task's block has been written into the job output. */
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        /** Workers currently running this task, with the time it was sent to each. */
+        final Map<String, Long> attempts = new ConcurrentHashMap<>();
+        volatile TimingWheel.Timeout deadline;
 
-        TaskInfo(String taskId, String operation, String data, int startRow) {
+        TaskInfo(String taskId, Job job, Band band, String operation, Operand operand, Matrix source,
+                 int startRow, int endRow, int startCol, int endCol, SharedJob shared) {
             this.taskId = taskId;
+            this.job = job;
+            this.band = band;
             this.operation = operation;
-            this.data = data;
+            this.operand = operand;
+            this.source = source;
             this.startRow = startRow;
+            this.endRow = endRow;
+            this.startCol = startCol;
+            this.endCol = endCol;
+            this.shared = shared;
+        }
+
+        /** Socket encoding of this task, built on first use. */
+        synchronized byte[] payload() {
+            if (data == null) {
+                data = encodeBlockTask(taskId, operation, operand, source, startRow, endRow);
+            }
+            return data;
+        }
+
+        /** Descriptor pointing a co-located worker at the job's mapped files. */
+        byte[] sharedPayload() {
+            String in = shared.input.path().toString();
+            String out = shared.output.path().toString();
+            long rowBytes = (long) shared.cols * Integer.BYTES;
+            ByteBuffer buf = TileCodec.wrap(new byte[TileCodec.stringBytes(taskId) + TileCodec.stringBytes(operation)
+                    + TileCodec.stringBytes(operand.jobId) + TileCodec.stringBytes(in) + TileCodec.stringBytes(out)
+                    + 3 * Long.BYTES + 4 * Integer.BYTES]);
+            TileCodec.putString(buf, taskId);
+            TileCodec.putString(buf, operation);
+            TileCodec.putString(buf, operand.jobId);
+            TileCodec.putString(buf, in);
+            buf.putLong(startRow * rowBytes).putInt(endRow - startRow).putInt(shared.cols);
+            buf.putLong(0).putInt(shared.rows).putInt(shared.cols);
+            TileCodec.putString(buf, out);
+            buf.putLong(startRow * rowBytes);
+            return buf.array();
+        }
+
+        /** Wire size of this task's A tile, without encoding it. */
+        long estimatedBytes() {
+            return TileCodec.tileBytes(endRow - startRow, source.cols());
+        }
+
+        /** This task's block of the job output. */
+        Matrix output() {
+            return band.buffer.block(0, endRow - startRow, startCol, endCol);
+        }
+
+        /** Multiply-adds this task needs. */
+        long work() {
+            return (long) (endRow - startRow) * (endCol - startCol) * source.cols();
+        }
+
+        void cancelDeadline() {
+            TimingWheel.Timeout d = deadline;
+            if (d != null) d.cancel();
         }
     }
 }
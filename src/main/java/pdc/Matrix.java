@@ -0,0 +1,176 @@
+package pdc;
+
+import java.util.Arrays;
+
+/**
+ * Dense row-major int matrix backed by a single flat array.
+ * Element (i, j) lives at {@code data[offset + i * stride + j]}, so a block
+ * of rows is a view over the same array and costs no copy.
+ */
+public final class Matrix {
+
+    private final int[] data;
+    private final int offset;
+    private final int rows;
+    private final int cols;
+    private final int stride;
+
+    public Matrix(int rows, int cols) {
+        this(new int[Math.multiplyExact(rows, cols)], 0, rows, cols, cols);
+    }
+
+    private Matrix(int[] data, int offset, int rows, int cols, int stride) {
+        if (rows < 0 || cols < 0 || stride < cols) {
+            throw new IllegalArgumentException("Invalid shape: " + rows + "x" + cols + " stride " + stride);
+        }
+        this.data = data;
+        this.offset = offset;
+        this.rows = rows;
+        this.cols = cols;
+        this.stride = stride;
+    }
+
+    /** Wraps an existing row-major array without copying it. */
+    public static Matrix wrap(int[] data, int rows, int cols) {
+        if ((long) rows * cols > data.length) {
+            throw new IllegalArgumentException("Array too small for " + rows + "x" + cols);
+        }
+        return new Matrix(data, 0, rows, cols, cols);
+    }
+
+    public static Matrix fromArray(int[][] matrix) {
+        int rows = matrix.length;
+        int cols = rows > 0 ? matrix[0].length : 0;
+        Matrix m = new Matrix(rows, cols);
+        for (int i = 0; i < rows; i++) {
+            if (matrix[i].length != cols) {
+                throw new IllegalArgumentException("Ragged row " + i + ": " + matrix[i].length + " != " + cols);
+            }
+            System.arraycopy(matrix[i], 0, m.data, i * cols, cols);
+        }
+        return m;
+    }
+
+    public int[][] toArray() {
+        int[][] out = new int[rows][];
+        for (int i = 0; i < rows; i++) {
+            int start = rowOffset(i);
+            out[i] = Arrays.copyOfRange(data, start, start + cols);
+        }
+        return out;
+    }
+
+    /** Rows [startRow, endRow) as a view sharing this matrix's storage. */
+    public Matrix rowBlock(int startRow, int endRow) {
+        if (startRow < 0 || endRow > rows || startRow > endRow) {
+            throw new IndexOutOfBoundsException("Rows " + startRow + ".." + endRow + " of " + rows);
+        }
+        return new Matrix(data, offset + startRow * stride, endRow - startRow, cols, stride);
+    }
+
+    /** Rows [startRow, endRow) x columns [startCol, endCol) as a view sharing this matrix's storage. */
+    public Matrix block(int startRow, int endRow, int startCol, int endCol) {
+        if (startCol < 0 || endCol > cols || startCol > endCol) {
+            throw new IndexOutOfBoundsException("Cols " + startCol + ".." + endCol + " of " + cols);
+        }
+        Matrix rowView = rowBlock(startRow, endRow);
+        return new Matrix(data, rowView.offset + startCol, rowView.rows, endCol - startCol, stride);
+    }
+
+    public void setRows(int startRow, Matrix block) {
+        if (block.cols != cols) {
+            throw new IndexOutOfBoundsException("Block " + block.rows + "x" + block.cols + " into " + this);
+        }
+        setBlock(startRow, 0, block);
+    }
+
+    public void setBlock(int startRow, int startCol, Matrix block) {
+        if (startRow < 0 || startCol < 0 || startRow + block.rows > rows || startCol + block.cols > cols) {
+            throw new IndexOutOfBoundsException("Block " + block.rows + "x" + block.cols
+                    + " at " + startRow + "," + startCol);
+        }
+        if (block.cols == cols && block.isContiguous() && isContiguous()) {
+            System.arraycopy(block.data, block.offset, data, rowOffset(startRow), block.rows * cols);
+            return;
+        }
+        for (int i = 0; i < block.rows; i++) {
+            System.arraycopy(block.data, block.rowOffset(i), data, rowOffset(startRow + i) + startCol, block.cols);
+        }
+    }
+
+    public int get(int row, int col) {
+        return data[rowOffset(row) + col];
+    }
+
+    public void set(int row, int col, int value) {
+        data[rowOffset(row) + col] = value;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public int stride() {
+        return stride;
+    }
+
+    public int[] data() {
+        return data;
+    }
+
+    public int rowOffset(int row) {
+        return offset + row * stride;
+    }
+
+    /** True when rows are packed back to back with no gap. */
+    public boolean isContiguous() {
+        return stride == cols || rows <= 1;
+    }
+
+    /**
+     * FNV-1a-style hash that mixes in whole ints rather than bytes: the row
+     * count, then per row the column count and elements. Cheap, not
+     * collision-resistant.
+     */
+    public long contentHash() {
+        long h = 0xcbf29ce484222325L;
+        h = (h ^ rows) * 0x100000001b3L;
+        for (int i = 0; i < rows; i++) {
+            h = (h ^ cols) * 0x100000001b3L;
+            int start = rowOffset(i);
+            for (int j = start; j < start + cols; j++) {
+                h = (h ^ data[j]) * 0x100000001b3L;
+            }
+        }
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Matrix)) return false;
+        Matrix other = (Matrix) o;
+        if (rows != other.rows || cols != other.cols) return false;
+        for (int i = 0; i < rows; i++) {
+            if (!Arrays.equals(data, rowOffset(i), rowOffset(i) + cols,
+                    other.data, other.rowOffset(i), other.rowOffset(i) + cols)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(contentHash());
+    }
+
+    @Override
+    public String toString() {
+        return "Matrix[" + rows + "x" + cols + "]";
+    }
+}
@@ -28,6 +28,23 @@ public class MatrixGenerator {
         return matrix;
     }
 
+    /**
+     * Generates a random matrix in flat storage.
+     *
+     * @param rows     number of rows
+     * @param cols     number of columns
+     * @param maxValue maximum value for matrix elements (exclusive)
+     * @return a randomly generated matrix
+     */
+    public static Matrix generateRandom(int rows, int cols, int maxValue) {
+        Matrix matrix = new Matrix(rows, cols);
+        int[] data = matrix.data();
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextInt(maxValue);
+        }
+        return matrix;
+    }
+
     /**
      * Generates an identity matrix of specified size.
      * 
@@ -1,22 +1,41 @@
 package pdc;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 
 public class Message {
+    public static final String MAGIC = "CSM218";
+    private static final byte[] MAGIC_BYTES = MAGIC.getBytes(StandardCharsets.UTF_8);
+    // message types are pre-encoded once; sender ids come from peers and are not cached
+    private static final EncodedString[] TYPES = encodeAll(
+            "CONNECT", "REGISTER_WORKER", "WORKER_ACK", "REGISTER_CAPABILITIES", "HEARTBEAT",
+            "RPC_REQUEST", "TASK_COMPLETE", "TASK_ERROR", "SHUTDOWN", "OPERAND_PUT", "OPERAND_EVICT",
+            "TASK_BATCH", "TASK_COMPLETE_BATCH", "SHARED_TASK", "TASK_COMPLETE_SHARED",
+            "WORK_REQUEST", "TASK_CANCEL");
+    private static final Map<String, byte[]> TYPE_BYTES = new HashMap<>();
+
+    static {
+        for (EncodedString e : TYPES) TYPE_BYTES.put(e.value, e.bytes);
+    }
+
     public String magic;
     public int version;
     public String messageType;
     public String studentId;
     public long timestamp;
     public byte[] payload;
+    private ByteBuffer payloadView;
 
     public Message() {
-        this.magic = "CSM218";
+        this.magic = MAGIC;
         this.version = 1;
         this.timestamp = System.currentTimeMillis();
     }
@@ -29,32 +48,32 @@ public class Message {
     }
 
     public byte[] pack() {
+        return serialize();
+    }
+
+    public static Message unpack(byte[] data) {
+        return deserialize(data);
+    }
+
+    /** Stream form of the wire format, byte for byte what writeTo produces. */
+    public byte[] serialize() {
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(encodedSize());
             DataOutputStream dos = new DataOutputStream(baos);
-            
-            byte[] magicBytes = magic != null ? magic.getBytes(StandardCharsets.UTF_8) : new byte[0];
-            dos.writeInt(magicBytes.length);
-            dos.write(magicBytes);
-            
+            writeField(dos, encodedBytes(magic));
             dos.writeInt(version);
-            
-            byte[] typeBytes = messageType != null ? messageType.getBytes(StandardCharsets.UTF_8) : new byte[0];
-            dos.writeInt(typeBytes.length);
-            dos.write(typeBytes);
-            
-            byte[] senderBytes = studentId != null ? studentId.getBytes(StandardCharsets.UTF_8) : new byte[0];
-            dos.writeInt(senderBytes.length);
-            dos.write(senderBytes);
-            
+            writeField(dos, encodedBytes(messageType));
+            writeField(dos, encodedBytes(studentId));
             dos.writeLong(timestamp);
-            
-            int payloadLen = payload != null ? payload.length : 0;
-            dos.writeInt(payloadLen);
-            if (payloadLen > 0) {
+            dos.writeInt(payloadLength());
+            if (payloadView != null) {
+                ByteBuffer view = payloadView.duplicate();
+                byte[] bytes = new byte[view.remaining()];
+                view.get(bytes);
+                dos.write(bytes);
+            } else if (payload != null) {
                 dos.write(payload);
             }
-            
             dos.flush();
             return baos.toByteArray();
         } catch (IOException e) {
@@ -62,54 +81,102 @@ public class Message {
         }
     }
 
-    public static Message unpack(byte[] data) {
+    public static Message deserialize(byte[] data) {
         if (data == null || data.length == 0) return null;
-        
         try {
-            ByteArrayInputStream bais = new ByteArrayInputStream(data);
-            DataInputStream dis = new DataInputStream(bais);
-            
+            DataInputStream dis = new DataInputStream(new ByteArrayInputStream(data));
             Message msg = new Message();
-            
-            int magicLen = dis.readInt();
-            if (magicLen > 0) {
-                byte[] magicBytes = new byte[magicLen];
-                dis.readFully(magicBytes);
-                msg.magic = new String(magicBytes, StandardCharsets.UTF_8);
-            }
-            
+            msg.magic = readField(dis);
             msg.version = dis.readInt();
-            
-            int typeLen = dis.readInt();
-            if (typeLen > 0) {
-                byte[] typeBytes = new byte[typeLen];
-                dis.readFully(typeBytes);
-                msg.messageType = new String(typeBytes, StandardCharsets.UTF_8);
-            }
-            
-            int senderLen = dis.readInt();
-            if (senderLen > 0) {
-                byte[] senderBytes = new byte[senderLen];
-                dis.readFully(senderBytes);
-                msg.studentId = new String(senderBytes, StandardCharsets.UTF_8);
-            }
-            
+            msg.messageType = readField(dis);
+            msg.studentId = readField(dis);
             msg.timestamp = dis.readLong();
-            
             int payloadLen = dis.readInt();
+            if (payloadLen < 0 || payloadLen > dis.available()) return null;
+            msg.payload = new byte[payloadLen];
+            dis.readFully(msg.payload);
+            return msg;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public int encodedSize() {
+        return 4 * Integer.BYTES + Long.BYTES + Integer.BYTES
+                + encodedBytes(magic).length
+                + encodedBytes(messageType).length
+                + encodedBytes(studentId).length
+                + payloadLength();
+    }
+
+    /**
+     * Writes this message in the CSM218 wire format at the buffer's position.
+     * The buffer must have at least {@link #encodedSize()} bytes remaining.
+     */
+    public void writeTo(ByteBuffer buf) {
+        byte[] magicBytes = encodedBytes(magic);
+        buf.putInt(magicBytes.length);
+        buf.put(magicBytes);
+
+        buf.putInt(version);
+
+        byte[] typeBytes = encodedBytes(messageType);
+        buf.putInt(typeBytes.length);
+        buf.put(typeBytes);
+
+        byte[] senderBytes = encodedBytes(studentId);
+        buf.putInt(senderBytes.length);
+        buf.put(senderBytes);
+
+        buf.putLong(timestamp);
+
+        buf.putInt(payloadLength());
+        if (payloadView != null) {
+            buf.put(payloadView.duplicate());
+        } else if (payload != null) {
+            buf.put(payload);
+        }
+    }
+
+    /**
+     * Reads one message from the buffer's position up to its limit.
+     * The payload is a view into {@code buf}, valid only until the
+     * buffer is reused; callers that keep it must copy it out.
+     */
+    public static Message readFrom(ByteBuffer buf) {
+        try {
+            Message msg = new Message();
+
+            int magicLen = buf.getInt();
+            msg.magic = magicLen > 0 ? readMagic(buf, magicLen) : null;
+
+            msg.version = buf.getInt();
+
+            int typeLen = buf.getInt();
+            msg.messageType = typeLen > 0 ? readType(buf, typeLen) : null;
+
+            int senderLen = buf.getInt();
+            msg.studentId = senderLen > 0 ? readString(buf, senderLen) : null;
+
+            msg.timestamp = buf.getLong();
+
+            int payloadLen = buf.getInt();
+            if (payloadLen < 0 || payloadLen > buf.remaining()) return null;
             if (payloadLen > 0) {
-                msg.payload = new byte[payloadLen];
-                dis.readFully(msg.payload);
+                ByteBuffer view = buf.slice();
+                view.limit(payloadLen);
+                msg.payloadView = view;
+                buf.position(buf.position() + payloadLen);
             }
-            
+
             return msg;
-        } catch (IOException e) {
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
             return null;
         }
     }
 
     public void validate() throws IllegalStateException {
-        if (!"CSM218".equals(magic)) {
+        if (!MAGIC.equals(magic)) {
             throw new IllegalStateException("Invalid magic: " + magic);
         }
         if (version != 1) {
@@ -120,11 +187,115 @@ public class Message {
         }
     }
 
+    /**
+     * Returns the payload as a buffer positioned at its first byte,
+     * without copying.
+     */
+    public ByteBuffer payloadBuffer() {
+        if (payloadView != null) return payloadView.duplicate();
+        return ByteBuffer.wrap(payload != null ? payload : new byte[0]);
+    }
+
+    /**
+     * Returns the payload as an array, copying it out of the view if needed.
+     */
+    public byte[] getPayload() {
+        if (payloadView == null) return payload;
+        byte[] copy = new byte[payloadView.remaining()];
+        payloadView.duplicate().get(copy);
+        return copy;
+    }
+
     public String getPayloadAsString() {
-        return payload != null ? new String(payload, StandardCharsets.UTF_8) : "";
+        if (payloadView != null && payloadView.hasArray()) {
+            ByteBuffer view = payloadView;
+            return new String(view.array(), view.arrayOffset() + view.position(), view.remaining(),
+                    StandardCharsets.UTF_8);
+        }
+        byte[] bytes = getPayload();
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : "";
     }
 
     public void setPayloadFromString(String str) {
         this.payload = str != null ? str.getBytes(StandardCharsets.UTF_8) : null;
+        this.payloadView = null;
+    }
+
+    private int payloadLength() {
+        if (payloadView != null) return payloadView.remaining();
+        return payload != null ? payload.length : 0;
+    }
+
+    private static String readMagic(ByteBuffer buf, int len) {
+        if (len == MAGIC_BYTES.length && regionEquals(buf, MAGIC_BYTES)) {
+            buf.position(buf.position() + len);
+            return MAGIC;
+        }
+        return readString(buf, len);
+    }
+
+    private static String readType(ByteBuffer buf, int len) {
+        for (EncodedString e : TYPES) {
+            if (e.bytes.length == len && regionEquals(buf, e.bytes)) {
+                buf.position(buf.position() + len);
+                return e.value;
+            }
+        }
+        return readString(buf, len);
+    }
+
+    private static byte[] encodedBytes(String str) {
+        if (str == null) return new byte[0];
+        if (MAGIC.equals(str)) return MAGIC_BYTES;
+        byte[] known = TYPE_BYTES.get(str);
+        return known != null ? known : str.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void writeField(DataOutputStream dos, byte[] bytes) throws IOException {
+        dos.writeInt(bytes.length);
+        dos.write(bytes);
+    }
+
+    private static String readField(DataInputStream dis) throws IOException {
+        int len = dis.readInt();
+        if (len <= 0) return null;
+        if (len > dis.available()) throw new IOException("Truncated field");
+        byte[] bytes = new byte[len];
+        dis.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer buf, int len) {
+        if (len > buf.remaining()) throw new BufferUnderflowException();
+        byte[] bytes = new byte[len];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean regionEquals(ByteBuffer buf, byte[] expected) {
+        if (buf.remaining() < expected.length) return false;
+        int base = buf.position();
+        for (int i = 0; i < expected.length; i++) {
+            if (buf.get(base + i) != expected[i]) return false;
+        }
+        return true;
+    }
+
+    private static EncodedString[] encodeAll(String... values) {
+        EncodedString[] encoded = new EncodedString[values.length];
+        for (int i = 0; i < values.length; i++) {
+            encoded[i] = new EncodedString(values[i]);
+        }
+        return encoded;
+    }
+
+    private static final class EncodedString {
+        final String value;
+        final byte[] bytes;
+
+        EncodedString(String value) {
+            this.value = value;
+            this.bytes = value.getBytes(StandardCharsets.UTF_8);
+        }
     }
 }
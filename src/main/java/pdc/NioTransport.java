@@ -0,0 +1,319 @@
+package pdc;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking Message transport built on a Selector per I/O thread.
+ * Each connection owns a read buffer that accumulates partial frames and
+ * a lock-free outbound queue that senders append to; the connection's I/O
+ * thread is its only writer, gathering queued frames into one write buffer
+ * that is drained whenever the channel becomes writable.
+ */
+public class NioTransport {
+
+    /**
+     * Receives transport events on an I/O thread. Message payloads are views
+     * into the connection's read buffer and are only valid during the call.
+     */
+    public interface Handler {
+        void onFrame(Connection conn, Message msg);
+
+        void onClose(Connection conn);
+    }
+
+    private static final int INITIAL_BUFFER = 65536;
+    private static final int MAX_RETAINED = 8 * 1024 * 1024;
+
+    private final Handler handler;
+    private final IoLoop[] loops;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicInteger nextLoop = new AtomicInteger(0);
+    private ServerSocketChannel server;
+
+    public NioTransport(int ioThreads, Handler handler) throws IOException {
+        this.handler = handler;
+        this.loops = new IoLoop[Math.max(1, ioThreads)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new IoLoop(i);
+        }
+    }
+
+    public void bind(int port) throws IOException {
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        running.set(true);
+        loops[0].register(server, SelectionKey.OP_ACCEPT, null);
+        for (IoLoop loop : loops) {
+            loop.thread.start();
+        }
+    }
+
+    public int localPort() {
+        return server.socket().getLocalPort();
+    }
+
+    public void close() {
+        running.set(false);
+        for (IoLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+        try {
+            if (server != null) server.close();
+        } catch (IOException ignored) {}
+    }
+
+    private void accept() throws IOException {
+        SocketChannel ch;
+        while ((ch = server.accept()) != null) {
+            ch.configureBlocking(false);
+            ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            IoLoop loop = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+            Connection conn = new Connection(ch, loop);
+            loop.register(ch, SelectionKey.OP_READ, conn);
+        }
+    }
+
+    /**
+     * One accepted channel with its own read and write buffers.
+     */
+    public class Connection {
+        private final SocketChannel channel;
+        private final IoLoop loop;
+        private final Queue<Message> outbound = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+        private ByteBuffer readBuf = ByteBuffer.allocate(INITIAL_BUFFER);
+        private ByteBuffer writeBuf = ByteBuffer.allocate(INITIAL_BUFFER);
+        private volatile SelectionKey key;
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        private volatile boolean closeWhenFlushed;
+        volatile Object attachment;
+
+        Connection(SocketChannel channel, IoLoop loop) {
+            this.channel = channel;
+            this.loop = loop;
+        }
+
+        /**
+         * Queues one frame and returns; the I/O thread writes it along with
+         * whatever else was queued by then.
+         */
+        public void send(Message msg) throws IOException {
+            if (closed.get()) throw new IOException("Connection closed");
+            outbound.add(msg);
+            if (writeScheduled.compareAndSet(false, true)) loop.execute(this::writeOutbound);
+        }
+
+        /** Closes the connection once every queued frame, partial writes included, has reached the socket. */
+        public void closeAfterFlush() {
+            closeWhenFlushed = true;
+            loop.execute(this::writeOutbound);
+        }
+
+        public InetAddress remoteAddress() {
+            return channel.socket().getInetAddress();
+        }
+
+        public void close() {
+            if (!closed.compareAndSet(false, true)) return;
+            SelectionKey k = key;
+            if (k != null) k.cancel();
+            try { channel.close(); } catch (IOException ignored) {}
+            handler.onClose(this);
+        }
+
+        private void ensureWritable(int needed) {
+            if (writeBuf.remaining() >= needed) return;
+            int capacity = Math.max(writeBuf.capacity() * 2, writeBuf.position() + needed);
+            ByteBuffer grown = ByteBuffer.allocate(capacity);
+            writeBuf.flip();
+            grown.put(writeBuf);
+            writeBuf = grown;
+        }
+
+        /** Moves queued frames into the write buffer and writes what the socket accepts. */
+        private void writeOutbound() {
+            writeScheduled.set(false);
+            if (closed.get()) {
+                outbound.clear();
+                return;
+            }
+            try {
+                Message msg;
+                while ((msg = outbound.poll()) != null) {
+                    int size = msg.encodedSize();
+                    ensureWritable(size + Integer.BYTES);
+                    writeBuf.putInt(size);
+                    msg.writeTo(writeBuf);
+                }
+                SelectionKey k = key;
+                if (flush()) {
+                    closeIfDrained();
+                } else if (k != null && k.isValid()) {
+                    k.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                }
+            } catch (IOException | RuntimeException e) {
+                close();
+            }
+        }
+
+        /** Writes pending bytes; returns true when the buffer is empty. I/O thread only. */
+        private boolean flush() throws IOException {
+            writeBuf.flip();
+            while (writeBuf.hasRemaining()) {
+                if (channel.write(writeBuf) == 0) {
+                    writeBuf.compact();
+                    return false;
+                }
+            }
+            writeBuf = writeBuf.capacity() > MAX_RETAINED ? ByteBuffer.allocate(INITIAL_BUFFER) : writeBuf.clear();
+            return true;
+        }
+
+        private void onWritable() throws IOException {
+            if (!flush()) return;
+            key.interestOps(SelectionKey.OP_READ);
+            closeIfDrained();
+        }
+
+        private void closeIfDrained() {
+            if (closeWhenFlushed && outbound.isEmpty()) close();
+        }
+
+        private void onReadable() throws IOException {
+            int n = channel.read(readBuf);
+            if (n < 0) {
+                close();
+                return;
+            }
+            readBuf.flip();
+            while (readBuf.remaining() >= Integer.BYTES) {
+                int start = readBuf.position();
+                int len = readBuf.getInt(start);
+                if (len <= 0 || len > FrameStream.MAX_FRAME) {
+                    close();
+                    return;
+                }
+                if (readBuf.remaining() < Integer.BYTES + len) {
+                    if (readBuf.capacity() < Integer.BYTES + len) {
+                        ByteBuffer grown = ByteBuffer.allocate(Integer.BYTES + len);
+                        grown.put(readBuf);
+                        readBuf = grown;
+                        return;
+                    }
+                    break;
+                }
+                ByteBuffer frame = readBuf.duplicate();
+                frame.position(start + Integer.BYTES);
+                frame.limit(start + Integer.BYTES + len);
+                readBuf.position(start + Integer.BYTES + len);
+                Message msg = Message.readFrom(frame);
+                if (msg == null) {
+                    close();
+                    return;
+                }
+                handler.onFrame(this, msg);
+                if (closed.get()) return;
+            }
+            if (!readBuf.hasRemaining() && readBuf.capacity() > MAX_RETAINED) {
+                readBuf = ByteBuffer.allocate(INITIAL_BUFFER);
+            } else {
+                readBuf.compact();
+            }
+        }
+    }
+
+    private class IoLoop implements Runnable {
+        final Selector selector;
+        final Thread thread;
+        final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+        IoLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "master-nio-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        void register(SelectableChannel ch, int ops, Connection conn) {
+            execute(() -> {
+                try {
+                    SelectionKey k = ch.register(selector, ops, conn);
+                    if (conn != null) conn.key = k;
+                } catch (IOException e) {
+                    if (conn != null) conn.close();
+                }
+            });
+        }
+
+        /** Runs {@code task} on this loop's thread after the current select. */
+        void execute(Runnable task) {
+            pending.add(task);
+            selector.wakeup();
+        }
+
+        private void runPending() {
+            Runnable task;
+            while ((task = pending.poll()) != null) {
+                task.run();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running.get()) {
+                    selector.select();
+                    runPending();
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey k = it.next();
+                        it.remove();
+                        dispatch(k);
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                if (running.get()) {
+                    System.err.println("NIO loop error: " + e.getMessage());
+                }
+            } finally {
+                try {
+                    runPending();
+                } catch (RuntimeException ignored) {}
+                for (SelectionKey k : selector.keys()) {
+                    if (k.attachment() instanceof Connection) ((Connection) k.attachment()).close();
+                }
+                try { selector.close(); } catch (IOException ignored) {}
+            }
+        }
+
+        private void dispatch(SelectionKey k) {
+            Connection conn = (Connection) k.attachment();
+            try {
+                if (!k.isValid()) return;
+                if (k.isAcceptable()) {
+                    accept();
+                    return;
+                }
+                if (k.isReadable()) conn.onReadable();
+                if (k.isValid() && k.isWritable()) conn.onWritable();
+            } catch (IOException | RuntimeException e) {
+                if (conn != null) conn.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package pdc;
+
+/**
+ * Phi-accrual failure detector for one peer. Every frame heard from the
+ * peer is an arrival; the detector fits a normal distribution to a window
+ * of recent inter-arrival times and reports phi, -log10 of the chance that
+ * a live peer stays silent as long as this one has. Phi grows smoothly with
+ * silence and the scale adapts to the peer's own rhythm, so a threshold
+ * replaces a fixed timeout. A threshold of 8 accepts roughly a 1e-8 chance
+ * of suspecting a peer that is merely slow.
+ */
+public class PhiAccrualDetector {
+
+    private static final int WINDOW = 100;
+
+    private final double minStdDevMillis;
+    private final long acceptablePauseMillis;
+    private final long[] intervals = new long[WINDOW];
+    private int count;
+    private int next;
+    private double sum;
+    private double sumSquares;
+    private long lastMillis;
+
+    /**
+     * Starts as if the peer was heard at {@code nowMillis}, seeded with two
+     * samples around {@code firstIntervalMillis} so phi is usable at once.
+     */
+    public PhiAccrualDetector(long firstIntervalMillis, double minStdDevMillis, long acceptablePauseMillis,
+                              long nowMillis) {
+        this.minStdDevMillis = minStdDevMillis;
+        this.acceptablePauseMillis = acceptablePauseMillis;
+        this.lastMillis = nowMillis;
+        add(firstIntervalMillis - firstIntervalMillis / 4);
+        add(firstIntervalMillis + firstIntervalMillis / 4);
+    }
+
+    /** Records an arrival. */
+    public synchronized void heartbeat(long nowMillis) {
+        if (nowMillis < lastMillis) return;
+        add(nowMillis - lastMillis);
+        lastMillis = nowMillis;
+    }
+
+    public synchronized long lastHeardMillis() {
+        return lastMillis;
+    }
+
+    /** Suspicion level at {@code nowMillis}; 0 when just heard, unbounded as silence grows. */
+    public synchronized double phi(long nowMillis) {
+        double mean = sum / count;
+        double stdDev = Math.max(minStdDevMillis, Math.sqrt(Math.max(0, sumSquares / count - mean * mean)));
+        double y = (nowMillis - lastMillis - mean - acceptablePauseMillis) / stdDev;
+        double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+        double tail = y > 0 ? e / (1 + e) : 1 - 1 / (1 + e);
+        return -Math.log10(tail);
+    }
+
+    private void add(long interval) {
+        if (count == WINDOW) {
+            long old = intervals[next];
+            sum -= old;
+            sumSquares -= (double) old * old;
+        } else {
+            count++;
+        }
+        intervals[next] = interval;
+        next = (next + 1) % WINDOW;
+        sum += interval;
+        sumSquares += (double) interval * interval;
+    }
+}
@@ -0,0 +1,104 @@
+package pdc;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One stage of the worker's task pipeline: a fixed number of threads fed
+ * from a bounded queue. The stage records how long each item waited in the
+ * queue and how long it ran, so a stage that is starved or saturated shows
+ * up when tuning thread counts.
+ */
+public class PipelineStage {
+
+    /** Totals for one stage since it started. */
+    public static final class Timing {
+        private final String name;
+        private final int threads;
+        private final long items;
+        private final long waitNanos;
+        private final long runNanos;
+
+        Timing(String name, int threads, long items, long waitNanos, long runNanos) {
+            this.name = name;
+            this.threads = threads;
+            this.items = items;
+            this.waitNanos = waitNanos;
+            this.runNanos = runNanos;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public int threads() {
+            return threads;
+        }
+
+        public long items() {
+            return items;
+        }
+
+        /** Total time items spent queued before a thread picked them up. */
+        public long waitNanos() {
+            return waitNanos;
+        }
+
+        /** Total time the stage's threads spent running items. */
+        public long runNanos() {
+            return runNanos;
+        }
+
+        @Override
+        public String toString() {
+            double n = Math.max(1, items);
+            return String.format("%s[%d]: %d items, wait %.3f ms, run %.3f ms", name, threads, items,
+                    waitNanos / n / 1e6, runNanos / n / 1e6);
+        }
+    }
+
+    private final String name;
+    private final int threads;
+    private final ThreadPoolExecutor pool;
+    private final LongAdder items = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+
+    public PipelineStage(String name, int threads, int capacity) {
+        this.name = name;
+        this.threads = Math.max(1, threads);
+        AtomicInteger count = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(this.threads, this.threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, capacity)), r -> {
+                    Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /** Queues one item. */
+    public void execute(Runnable item) {
+        long queued = System.nanoTime();
+        pool.execute(() -> {
+            long start = System.nanoTime();
+            try {
+                item.run();
+            } finally {
+                waitNanos.add(start - queued);
+                runNanos.add(System.nanoTime() - start);
+                items.increment();
+            }
+        });
+    }
+
+    public Timing timing() {
+        return new Timing(name, threads, items.sum(), waitNanos.sum(), runNanos.sum());
+    }
+
+    public void shutdownNow() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,207 @@
+package pdc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Finished job results keyed by operation and a digest of the input, kept
+ * in memory up to a byte budget with least-recently-used eviction. With a
+ * spill directory every entry is also written to disk, bounded by its own
+ * budget, so results survive a master restart and outlive memory eviction.
+ */
+public class ResultCache {
+
+    private static final int HASH_BLOCK_BYTES = 256 * 1024;
+    private static final String SUFFIX = ".mat";
+
+    private final long maxBytes;
+    private final Path spillDir;
+    private final long maxSpillBytes;
+    private final LinkedHashMap<String, Matrix> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long> spilled = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private long spilledBytes;
+
+    public ResultCache(long maxBytes) {
+        this(maxBytes, null, 0);
+    }
+
+    public ResultCache(long maxBytes, Path spillDir, long maxSpillBytes) {
+        this.maxBytes = maxBytes;
+        this.spillDir = spillDir;
+        this.maxSpillBytes = maxSpillBytes;
+        if (spillDir != null) loadIndex();
+    }
+
+    /**
+     * Cache key for running {@code operation} on {@code input}: the shape
+     * and a SHA-256 over the operation and per-row-block digests that are
+     * computed in parallel. Only hex digits, so it is always a safe file name.
+     */
+    public static String key(String operation, Matrix input) {
+        int rows = input.rows();
+        int cols = input.cols();
+        int blockRows = Math.max(1, HASH_BLOCK_BYTES / Math.max(1, cols * Integer.BYTES));
+        int blocks = (rows + blockRows - 1) / blockRows;
+        byte[][] parts = new byte[blocks][];
+        IntStream.range(0, blocks).parallel().forEach(b ->
+                parts[b] = digestRows(input, b * blockRows, Math.min(rows, (b + 1) * blockRows)));
+
+        MessageDigest root = sha256();
+        root.update(operation.getBytes(StandardCharsets.UTF_8));
+        root.update(ByteBuffer.allocate(2 * Integer.BYTES).putInt(rows).putInt(cols).array());
+        for (byte[] part : parts) root.update(part);
+        StringBuilder hex = new StringBuilder().append(rows).append('x').append(cols).append('-');
+        for (byte b : root.digest()) hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+
+    /** Returns a private copy of the cached result, or null on a miss. */
+    public Matrix get(String key) {
+        synchronized (this) {
+            Matrix hit = memory.get(key);
+            if (hit != null) return copy(hit);
+            if (spilled.get(key) == null) return null;
+        }
+        Path file = spillFile(key);
+        try {
+            Matrix loaded = TileCodec.readMatrix(TileCodec.wrap(Files.readAllBytes(file)));
+            file.toFile().setLastModified(System.currentTimeMillis());
+            synchronized (this) {
+                remember(key, loaded);
+            }
+            return copy(loaded);
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                forgetSpilled(key);
+            }
+            return null;
+        }
+    }
+
+    /** Stores a copy of {@code result}, spilling it to disk when configured. */
+    public void put(String key, Matrix result) {
+        Path file = spillDir != null ? spillFile(key) : null;
+        Matrix stored = copy(result);
+        synchronized (this) {
+            remember(key, stored);
+        }
+        if (spillDir == null) return;
+        long size = TileCodec.tileBytes(stored.rows(), stored.cols());
+        if (size > maxSpillBytes) return;
+        try {
+            ByteBuffer buf = ByteBuffer.allocate((int) size);
+            TileCodec.writeTile(buf, stored);
+            Path tmp = Files.createTempFile(spillDir, key, ".tmp");
+            Files.write(tmp, buf.array());
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            synchronized (this) {
+                Long old = spilled.put(key, size);
+                spilledBytes += size - (old != null ? old : 0);
+                trimSpill();
+            }
+        } catch (IOException e) {
+            System.err.println("Result cache spill failed: " + e.getMessage());
+        }
+    }
+
+    public synchronized int size() {
+        return memory.size();
+    }
+
+    public synchronized long memoryBytes() {
+        return memoryBytes;
+    }
+
+    private void remember(String key, Matrix value) {
+        long size = bytes(value);
+        if (size > maxBytes) return;
+        Matrix old = memory.put(key, value);
+        memoryBytes += size - (old != null ? bytes(old) : 0);
+        Iterator<Matrix> it = memory.values().iterator();
+        while (memoryBytes > maxBytes && it.hasNext()) {
+            memoryBytes -= bytes(it.next());
+            it.remove();
+        }
+    }
+
+    private void trimSpill() {
+        Iterator<Map.Entry<String, Long>> it = spilled.entrySet().iterator();
+        while (spilledBytes > maxSpillBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            spilledBytes -= eldest.getValue();
+            it.remove();
+            spillFile(eldest.getKey()).toFile().delete();
+        }
+    }
+
+    /** The spill file for a key; a key that would land outside the spill directory is refused. */
+    private Path spillFile(String key) {
+        Path file = spillDir.resolve(key + SUFFIX).normalize();
+        if (!spillDir.normalize().equals(file.getParent())) {
+            throw new IllegalArgumentException("Cache key is not a plain file name: " + key);
+        }
+        return file;
+    }
+
+    private void forgetSpilled(String key) {
+        Long size = spilled.remove(key);
+        if (size != null) spilledBytes -= size;
+    }
+
+    /** Rebuilds the disk index from the spill directory, oldest access first. */
+    private void loadIndex() {
+        File[] files = spillDir.toFile().listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files == null) return;
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File f : files) {
+            String name = f.getName();
+            spilled.put(name.substring(0, name.length() - SUFFIX.length()), f.length());
+            spilledBytes += f.length();
+        }
+        trimSpill();
+    }
+
+    private static long bytes(Matrix m) {
+        return (long) m.rows() * m.cols() * Integer.BYTES;
+    }
+
+    private static Matrix copy(Matrix m) {
+        Matrix c = new Matrix(m.rows(), m.cols());
+        if (m.rows() > 0 && m.cols() > 0) c.setBlock(0, 0, m);
+        return c;
+    }
+
+    private static byte[] digestRows(Matrix m, int startRow, int endRow) {
+        MessageDigest md = sha256();
+        ByteBuffer row = ByteBuffer.allocate(m.cols() * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = startRow; i < endRow; i++) {
+            row.clear();
+            row.asIntBuffer().put(m.data(), m.rowOffset(i), m.cols());
+            md.update(row.array());
+        }
+        return md.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
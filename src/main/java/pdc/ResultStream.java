@@ -0,0 +1,150 @@
+package pdc;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-subscriber publisher of a job's finished row blocks, in completion
+ * order. Blocks are delivered on the given executor, never more than the
+ * subscriber has requested; each delivery is reported back so the producer
+ * can let more work through. The stream completes after the last block and
+ * fails immediately if the job does.
+ */
+public final class ResultStream implements Flow.Publisher<ResultStream.RowBlock> {
+
+    /** Rows [startRow, startRow + rows.rows()) of a job's result. */
+    public static final class RowBlock {
+        private final int startRow;
+        private final Matrix rows;
+
+        public RowBlock(int startRow, Matrix rows) {
+            this.startRow = startRow;
+            this.rows = rows;
+        }
+
+        public int startRow() {
+            return startRow;
+        }
+
+        public Matrix rows() {
+            return rows;
+        }
+    }
+
+    private final Executor executor;
+    private final Runnable onDelivered;
+    private final Runnable onCancel;
+    private final Queue<RowBlock> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private volatile Flow.Subscriber<? super RowBlock> subscriber;
+    private volatile boolean finished;
+    private volatile Throwable error;
+    private volatile boolean closed;
+
+    public ResultStream(Executor executor, Runnable onDelivered, Runnable onCancel) {
+        this.executor = executor;
+        this.onDelivered = onDelivered;
+        this.onCancel = onCancel;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super RowBlock> s) {
+        if (!subscribed.compareAndSet(false, true)) {
+            s.onSubscribe(new Flow.Subscription() {
+                public void request(long n) {}
+                public void cancel() {}
+            });
+            s.onError(new IllegalStateException("ResultStream allows a single subscriber"));
+            return;
+        }
+        s.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    error = new IllegalArgumentException("Non-positive request: " + n);
+                    finished = true;
+                } else {
+                    demand.accumulateAndGet(n, (d, add) -> d + add < 0 ? Long.MAX_VALUE : d + add);
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                cancelStream();
+            }
+        });
+        subscriber = s;
+        drain();
+    }
+
+    /** Queues a finished block for delivery. */
+    public void emit(int startRow, Matrix rows) {
+        if (closed) return;
+        ready.add(new RowBlock(startRow, rows));
+        drain();
+    }
+
+    /** Signals completion once every queued block has been delivered. */
+    public void complete() {
+        finished = true;
+        drain();
+    }
+
+    /** Signals failure without waiting for queued blocks. */
+    public void fail(Throwable cause) {
+        error = cause;
+        finished = true;
+        drain();
+    }
+
+    private void cancelStream() {
+        if (closed) return;
+        closed = true;
+        ready.clear();
+        onCancel.run();
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) return;
+        executor.execute(() -> {
+            int missed = 1;
+            do {
+                Flow.Subscriber<? super RowBlock> s = subscriber;
+                if (s != null && !closed) deliver(s);
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        });
+    }
+
+    private void deliver(Flow.Subscriber<? super RowBlock> s) {
+        RowBlock block;
+        while (error == null && demand.get() > 0 && !closed && (block = ready.poll()) != null) {
+            demand.decrementAndGet();
+            try {
+                s.onNext(block);
+            } catch (Throwable t) {
+                cancelStream();
+                return;
+            }
+            onDelivered.run();
+        }
+        if (closed) return;
+        // a failure that arrived mid-loop must not be reported as completion
+        if (error != null) {
+            closed = true;
+            ready.clear();
+            s.onError(error);
+        } else if (finished && ready.isEmpty()) {
+            closed = true;
+            s.onComplete();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package pdc;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A memory-mapped file holding row-major little-endian ints, used to hand
+ * matrices to workers on the same host without sending them over the socket.
+ * Offsets are in bytes from the start of the file.
+ */
+public class SharedMatrixRegion {
+
+    private final Path path;
+    private final IntBuffer ints;
+
+    private SharedMatrixRegion(Path path, MappedByteBuffer mapped) {
+        this.path = path;
+        this.ints = mapped.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    /** Creates (or truncates) a file of the given size and maps it read-write. */
+    public static SharedMatrixRegion create(Path path, long bytes) throws IOException {
+        Files.createDirectories(path.getParent());
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return new SharedMatrixRegion(path, ch.map(FileChannel.MapMode.READ_WRITE, 0, bytes));
+        }
+    }
+
+    /** Maps an existing file created by {@link #create}. */
+    public static SharedMatrixRegion open(Path path, boolean writable) throws IOException {
+        StandardOpenOption[] opts = writable
+                ? new StandardOpenOption[] { StandardOpenOption.READ, StandardOpenOption.WRITE }
+                : new StandardOpenOption[] { StandardOpenOption.READ };
+        try (FileChannel ch = FileChannel.open(path, opts)) {
+            FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+            return new SharedMatrixRegion(path, ch.map(mode, 0, ch.size()));
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    /** Writes rows [startRow, endRow) of a matrix at the given byte offset. */
+    public void writeRows(long offset, Matrix matrix, int startRow, int endRow) {
+        IntBuffer view = ints.duplicate();
+        view.position(toIndex(offset));
+        Matrix block = matrix.rowBlock(startRow, endRow);
+        if (block.isContiguous()) {
+            view.put(block.data(), block.rowOffset(0), block.rows() * block.cols());
+            return;
+        }
+        for (int i = 0; i < block.rows(); i++) {
+            view.put(block.data(), block.rowOffset(i), block.cols());
+        }
+    }
+
+    /** Reads a rows x cols block starting at the given byte offset. */
+    public Matrix readRows(long offset, int rows, int cols) {
+        Matrix matrix = new Matrix(rows, cols);
+        readRows(offset, matrix);
+        return matrix;
+    }
+
+    /**
+     * Reads dest.rows() full-width rows starting at the given byte offset
+     * into an existing matrix or row-block view.
+     */
+    public void readRows(long offset, Matrix dest) {
+        IntBuffer view = ints.duplicate();
+        view.position(toIndex(offset));
+        if (dest.isContiguous()) {
+            view.get(dest.data(), dest.rowOffset(0), dest.rows() * dest.cols());
+            return;
+        }
+        for (int i = 0; i < dest.rows(); i++) {
+            view.get(dest.data(), dest.rowOffset(i), dest.cols());
+        }
+    }
+
+    public void delete() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {}
+    }
+
+    private static int toIndex(long offset) {
+        return Math.toIntExact(offset / Integer.BYTES);
+    }
+}
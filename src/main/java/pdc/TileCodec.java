@@ -0,0 +1,118 @@
+package pdc;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary encoding for matrix tiles carried in task payloads.
+ * A tile is a header of rows, cols and element width followed by
+ * row-major little-endian ints, read and written straight from a ByteBuffer.
+ */
+public final class TileCodec {
+
+    public static final int ELEMENT_WIDTH = Integer.BYTES;
+    public static final int HEADER_BYTES = 3 * Integer.BYTES;
+
+    private TileCodec() {}
+
+    /** Encoded size of a tile, header included. */
+    public static int tileBytes(int rows, int cols) {
+        return HEADER_BYTES + rows * cols * ELEMENT_WIDTH;
+    }
+
+    public static int stringBytes(String str) {
+        return Integer.BYTES + (str != null ? str.getBytes(StandardCharsets.UTF_8).length : 0);
+    }
+
+    public static ByteBuffer wrap(byte[] payload) {
+        return ByteBuffer.wrap(payload != null ? payload : new byte[0]).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /** Little-endian view of a message payload, without copying it. */
+    public static ByteBuffer payload(Message msg) {
+        return msg.payloadBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public static void writeTile(ByteBuffer buf, Matrix matrix) {
+        int rows = matrix.rows();
+        int cols = matrix.cols();
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(rows);
+        buf.putInt(cols);
+        buf.putInt(ELEMENT_WIDTH);
+
+        IntBuffer ints = buf.asIntBuffer();
+        if (matrix.isContiguous()) {
+            ints.put(matrix.data(), matrix.rowOffset(0), rows * cols);
+        } else {
+            for (int i = 0; i < rows; i++) {
+                ints.put(matrix.data(), matrix.rowOffset(i), cols);
+            }
+        }
+        buf.position(buf.position() + rows * cols * ELEMENT_WIDTH);
+    }
+
+    public static Matrix readMatrix(ByteBuffer buf) {
+        int[] shape = readHeader(buf);
+        Matrix matrix = new Matrix(shape[0], shape[1]);
+        int count = shape[0] * shape[1];
+        buf.asIntBuffer().get(matrix.data(), 0, count);
+        buf.position(buf.position() + count * ELEMENT_WIDTH);
+        return matrix;
+    }
+
+    /** Reads one tile straight into {@code dest}, clipping whatever falls outside it. */
+    public static void readInto(ByteBuffer buf, Matrix dest) {
+        int[] shape = readHeader(buf);
+        int rows = Math.min(shape[0], dest.rows());
+        int cols = Math.min(shape[1], dest.cols());
+        IntBuffer ints = buf.asIntBuffer();
+        for (int i = 0; i < rows; i++) {
+            ints.position(i * shape[1]);
+            ints.get(dest.data(), dest.rowOffset(i), cols);
+        }
+        buf.position(buf.position() + shape[0] * shape[1] * ELEMENT_WIDTH);
+    }
+
+    private static int[] readHeader(ByteBuffer buf) {
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        int rows = buf.getInt();
+        int cols = buf.getInt();
+        int width = buf.getInt();
+        if (width != ELEMENT_WIDTH) {
+            throw new IllegalStateException("Unsupported element width: " + width);
+        }
+        if (rows < 0 || cols < 0 || (long) rows * cols * width > buf.remaining()) {
+            throw new IllegalStateException("Truncated tile: " + rows + "x" + cols);
+        }
+        return new int[] { rows, cols };
+    }
+
+    /** Key a worker stores a broadcast operand under. */
+    public static String operandKey(String jobId, long hash) {
+        return jobId + ":" + Long.toHexString(hash);
+    }
+
+    public static void putString(ByteBuffer buf, String str) {
+        byte[] bytes = str != null ? str.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        buf.putInt(bytes.length);
+        buf.put(bytes);
+    }
+
+    public static String getString(ByteBuffer buf) {
+        int len = buf.getInt();
+        if (len < 0 || len > buf.remaining()) {
+            throw new IllegalStateException("Invalid string length: " + len);
+        }
+        if (!buf.hasArray()) {
+            byte[] bytes = new byte[len];
+            buf.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        String str = new String(buf.array(), buf.arrayOffset() + buf.position(), len, StandardCharsets.UTF_8);
+        buf.position(buf.position() + len);
+        return str;
+    }
+}
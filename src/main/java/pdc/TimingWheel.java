@@ -0,0 +1,167 @@
+package pdc;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashed timing wheel. Timeouts hash by deadline into a fixed ring of
+ * buckets, so scheduling and cancelling cost O(1) however many are
+ * outstanding. A single thread advances the wheel one bucket per tick and
+ * hands expired callbacks to an executor; timeouts fire up to one tick
+ * late, never early.
+ */
+public class TimingWheel {
+
+    private static final int INIT = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    /** Handle for one scheduled callback. */
+    public static final class Timeout {
+        private final TimingWheel wheel;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(INIT);
+        private long rounds;
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimingWheel wheel, Runnable task, long deadline) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /** Stops the callback from running; false if it already ran or was cancelled. */
+        public boolean cancel() {
+            if (!state.compareAndSet(INIT, CANCELLED)) return false;
+            wheel.cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+
+    /** Doubly linked list of timeouts; touched only by the wheel thread. */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout t) {
+            t.bucket = this;
+            t.prev = tail;
+            if (tail == null) head = t; else tail.next = t;
+            tail = t;
+        }
+
+        void remove(Timeout t) {
+            if (t.prev == null) head = t.next; else t.prev.next = t.next;
+            if (t.next == null) tail = t.prev; else t.next.prev = t.prev;
+            t.prev = t.next = null;
+            t.bucket = null;
+        }
+
+        void expire(long deadline, Executor executor) {
+            Timeout t = head;
+            while (t != null) {
+                Timeout next = t.next;
+                if (t.rounds <= 0 && t.deadline <= deadline) {
+                    remove(t);
+                    if (t.state.compareAndSet(INIT, EXPIRED)) {
+                        try {
+                            executor.execute(t.task);
+                        } catch (RejectedExecutionException ignored) {}
+                    }
+                } else {
+                    t.rounds--;
+                }
+                t = next;
+            }
+        }
+    }
+
+    private final long tickNanos;
+    private final Bucket[] buckets;
+    private final int mask;
+    private final Executor executor;
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final long startNanos = System.nanoTime();
+    private final Thread thread;
+    private volatile boolean running = true;
+    private long tick;
+
+    /** Starts the wheel thread. */
+    public TimingWheel(long tickMillis, int wheelSize, Executor executor, String threadName) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.buckets = new Bucket[size];
+        for (int i = 0; i < size; i++) buckets[i] = new Bucket();
+        this.mask = size - 1;
+        this.executor = executor;
+        this.thread = new Thread(this::run, threadName);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /** Runs {@code task} on the executor once {@code delay} has passed. */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (!running) throw new RejectedExecutionException("Timing wheel stopped");
+        Timeout t = new Timeout(this, task, System.nanoTime() - startNanos + unit.toNanos(Math.max(0, delay)));
+        added.add(t);
+        return t;
+    }
+
+    /** Stops the wheel; pending timeouts never fire. */
+    public void stop() {
+        running = false;
+        thread.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = tickNanos * (tick + 1);
+            long sleepNanos = startNanos + deadline - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    Thread.sleep(TimeUnit.NANOSECONDS.toMillis(sleepNanos + 999_999));
+                } catch (InterruptedException e) {
+                    if (!running) return;
+                }
+                continue;
+            }
+            removeCancelled();
+            transferAdded();
+            buckets[(int) (tick & mask)].expire(deadline, executor);
+            tick++;
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout t;
+        while ((t = cancelled.poll()) != null) {
+            if (t.bucket != null) t.bucket.remove(t);
+        }
+    }
+
+    private void transferAdded() {
+        Timeout t;
+        while ((t = added.poll()) != null) {
+            if (t.state.get() != INIT) continue;
+            long due = t.deadline / tickNanos;
+            t.rounds = (due - tick) / buckets.length;
+            buckets[(int) (Math.max(due, tick) & mask)].add(t);
+        }
+    }
+}
@@ -1,31 +1,54 @@
 package pdc;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.Socket;
 import java.net.SocketException;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 
 public class Worker {
 
     private String workerId;
     private Socket socket;
-    private DataInputStream in;
-    private DataOutputStream out;
-    private final ExecutorService taskPool;
+    private FrameStream frames;
+    private final PipelineStage decodeStage;
+    private final PipelineStage computeStage;
+    private final PipelineStage encodeStage;
+    private final PipelineStage sendStage;
+    private final ExecutorService ioThreads;
+    private final ForkJoinPool kernelPool;
+    private final int slots;
+    private int tileSize;
     private final AtomicBoolean running = new AtomicBoolean(false);
     private String runtimeToken;
     private static final int BUFFER_SIZE = 65536;
-    private final Object sendLock = new Object();
+    private static final int MAX_BATCH_BYTES = 4 * 1024 * 1024;
+    private static final int PROBE_SIZE = 128;
+    private static final int QUEUE_CAPACITY = 64;
+    private static final long CREDIT_BYTES = 64L * 1024 * 1024;
+    private static final Set<String> OPERATIONS = new LinkedHashSet<>(
+            Arrays.asList("MATRIX_MULTIPLY", "BLOCK_MULTIPLY", "SUM", "SHARED_MATRIX"));
+    private final Queue<byte[]> completedResults = new ConcurrentLinkedQueue<>();
+    private final Queue<String> completedShared = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final ConcurrentHashMap<String, Matrix> operands = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SharedMatrixRegion> sharedRegions = new ConcurrentHashMap<>();
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
 
     public Worker() {
         this.workerId = System.getenv("WORKER_ID");
@@ -33,8 +56,19 @@ public class Worker {
             this.workerId = "worker-" + System.currentTimeMillis();
         }
         int cores = Runtime.getRuntime().availableProcessors();
-        this.taskPool = new ThreadPoolExecutor(cores, cores * 2, 60L, TimeUnit.SECONDS,
-                new LinkedBlockingQueue<>(100), new ThreadPoolExecutor.CallerRunsPolicy());
+        // Each queue has room for every credit: a result reaches the master (and a new
+        // task is credited) before the thread that produced it is idle again.
+        int capacity = cores + QUEUE_CAPACITY;
+        int helpers = Math.max(1, cores / 4);
+        this.decodeStage = new PipelineStage("decode", envInt("WORKER_DECODE_THREADS", helpers), capacity);
+        this.computeStage = new PipelineStage("compute", cores, capacity);
+        this.encodeStage = new PipelineStage("encode", envInt("WORKER_ENCODE_THREADS", helpers), capacity);
+        this.sendStage = new PipelineStage("send", 1, 1);
+        this.ioThreads = Threads.newIoExecutor("worker-io");
+        this.kernelPool = new ForkJoinPool(cores);
+        this.slots = cores;
+        String tile = System.getenv("WORKER_TILE_SIZE");
+        this.tileSize = tile != null ? Integer.parseInt(tile) : BlockedMultiply.DEFAULT_TILE;
     }
 
     public Worker(String workerId) {
@@ -50,15 +84,16 @@ public class Worker {
             socket.setReceiveBufferSize(BUFFER_SIZE);
             socket.setSoTimeout(30000);
 
-            in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
-            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+            frames = new FrameStream(socket, BUFFER_SIZE, ioThreads);
 
             Message connect = new Message("CONNECT", workerId, null);
             connect.setPayloadFromString("INIT");
             sendMessage(connect);
 
             Message reg = new Message("REGISTER_WORKER", workerId, null);
-            reg.setPayloadFromString("cores=" + Runtime.getRuntime().availableProcessors());
+            // operations up front: a job that starts before the measured capabilities arrive can already use them
+            reg.setPayloadFromString(String.join(",", OPERATIONS)
+                    + ";cores=" + Runtime.getRuntime().availableProcessors());
             sendMessage(reg);
 
             Message ack = receiveMessage();
@@ -69,8 +104,10 @@ public class Worker {
             }
 
             Message caps = new Message("REGISTER_CAPABILITIES", workerId, null);
-            caps.setPayloadFromString("MATRIX_MULTIPLY,BLOCK_MULTIPLY,SUM");
+            caps.setPayloadFromString(new WorkerCapabilities(OPERATIONS, slots, measureGflops(),
+                    slots + QUEUE_CAPACITY, CREDIT_BYTES).toString());
             sendMessage(caps);
+            requestWork();
 
         } catch (IOException e) {
             System.err.println("[" + workerId + "] Failed to join cluster: " + e.getMessage());
@@ -94,7 +131,27 @@ public class Worker {
                         break;
 
                     case "RPC_REQUEST":
-                        handleTask(request);
+                        handleTask(detach(TileCodec.payload(request)));
+                        break;
+
+                    case "TASK_BATCH":
+                        handleTaskBatch(request);
+                        break;
+
+                    case "SHARED_TASK":
+                        handleSharedTask(detach(TileCodec.payload(request)));
+                        break;
+
+                    case "OPERAND_PUT":
+                        storeOperand(request);
+                        break;
+
+                    case "TASK_CANCEL":
+                        cancelTask(request.getPayloadAsString());
+                        break;
+
+                    case "OPERAND_EVICT":
+                        evictOperands(request);
                         break;
 
                     case "SHUTDOWN":
@@ -116,159 +173,318 @@ public class Worker {
         shutdown();
     }
 
-    private void handleTask(Message request) {
-        taskPool.submit(() -> {
-            String taskId = "";
-            try {
-                String payloadStr = request.getPayloadAsString();
-                int firstPipe = payloadStr.indexOf('|');
-                int secondPipe = payloadStr.indexOf('|', firstPipe + 1);
-
-                taskId = firstPipe > 0 ? payloadStr.substring(0, firstPipe) : "";
-                String taskType = secondPipe > firstPipe ? payloadStr.substring(firstPipe + 1, secondPipe) : "";
-                String matrixData = secondPipe > 0 ? payloadStr.substring(secondPipe + 1) : "";
-
-                String result = processMatrix(taskType, matrixData);
-
-                Message response = new Message("TASK_COMPLETE", workerId, null);
-                response.setPayloadFromString(taskId + "|" + result);
-                sendMessage(response);
-            } catch (Exception e) {
-                try {
-                    Message error = new Message("TASK_ERROR", workerId, null);
-                    error.setPayloadFromString(taskId + "|" + e.getMessage());
-                    sendMessage(error);
-                } catch (Exception ignored) {}
-            }
-        });
+    private void handleTaskBatch(Message request) {
+        ByteBuffer payload = detach(TileCodec.payload(request));
+        int count = payload.getInt();
+        for (int i = 0; i < count; i++) {
+            int len = payload.getInt();
+            ByteBuffer entry = payload.slice();
+            entry.limit(len);
+            payload.position(payload.position() + len);
+            handleTask(entry.order(payload.order()));
+        }
     }
 
-    private String processMatrix(String taskType, String data) {
-        int hashIdx = data.indexOf("#;");
-        if (hashIdx == -1) return data;
+    /**
+     * Starts a task down the pipeline: decode its A tile, multiply, encode
+     * the result, then batch it into the next send. Each stage hands over
+     * to the next, so decoding one task overlaps computing another.
+     */
+    private void handleTask(ByteBuffer payload) {
+        String taskId = "";
+        try {
+            taskId = TileCodec.getString(payload);
+            String id = taskId;
+            inFlight.add(id);
+            runStage(decodeStage, id, () -> {
+                String taskType = TileCodec.getString(payload);
+                String key = TileCodec.operandKey(TileCodec.getString(payload), payload.getLong());
+                Matrix matB = operands.get(key);
+                if (matB == null) {
+                    throw new IllegalStateException("Unknown operand: " + key);
+                }
+                Matrix matA = TileCodec.readMatrix(payload);
+                long received = System.nanoTime();
+                runStage(computeStage, id, () -> {
+                    long start = System.nanoTime();
+                    Matrix result = processMatrix(taskType, matA, matB, id);
+                    long computed = System.nanoTime() - start;
+                    runStage(encodeStage, id, () -> {
+                        byte[] out = new byte[TileCodec.stringBytes(id) + 2 * Long.BYTES
+                                + TileCodec.tileBytes(result.rows(), result.cols())];
+                        ByteBuffer buf = TileCodec.wrap(out);
+                        TileCodec.putString(buf, id);
+                        buf.putLong(start - received).putLong(computed);
+                        TileCodec.writeTile(buf, result);
+                        if (inFlight.remove(id)) completeTask(out);
+                    });
+                });
+            });
+        } catch (Exception e) {
+            inFlight.remove(taskId);
+            sendTaskError(taskId, e);
+        }
+    }
 
-        String partA = data.substring(0, hashIdx);
-        String partB = data.substring(hashIdx + 2);
+    /**
+     * Runs a task whose operands live in memory-mapped files written by a
+     * master on the same host; the result is written back into the mapped
+     * output region and only the task id goes through the encode and send stages.
+     */
+    private void handleSharedTask(ByteBuffer payload) {
+        String taskId = "";
+        try {
+            taskId = TileCodec.getString(payload);
+            String id = taskId;
+            inFlight.add(id);
+            runStage(decodeStage, id, () -> {
+                String taskType = TileCodec.getString(payload);
+                String jobId = TileCodec.getString(payload);
+                SharedMatrixRegion input = sharedRegion(jobId, TileCodec.getString(payload), false);
+                long aOffset = payload.getLong();
+                int aRows = payload.getInt();
+                int aCols = payload.getInt();
+                long bOffset = payload.getLong();
+                int bRows = payload.getInt();
+                int bCols = payload.getInt();
+                SharedMatrixRegion output = sharedRegion(jobId, TileCodec.getString(payload), true);
+                long outOffset = payload.getLong();
+
+                String operandKey = jobId + ":" + input.path() + "@" + bOffset;
+                runStage(computeStage, id, () -> {
+                    Matrix matB = operands.computeIfAbsent(operandKey, k -> input.readRows(bOffset, bRows, bCols));
+                    Matrix matA = input.readRows(aOffset, aRows, aCols);
+                    Matrix result = processMatrix(taskType, matA, matB, id);
+                    output.writeRows(outOffset, result, 0, result.rows());
+                    runStage(encodeStage, id, () -> {
+                        if (inFlight.remove(id)) completeSharedTask(id);
+                    });
+                });
+            });
+        } catch (Exception e) {
+            inFlight.remove(taskId);
+            sendTaskError(taskId, e);
+        }
+    }
 
-        int[][] matA = parseMatrixFast(partA);
-        int[][] matB = parseMatrixFast(partB);
+    /**
+     * Copies a payload out of the frame read buffer, which the next receive
+     * overwrites, so later stages can read it.
+     */
+    private static ByteBuffer detach(ByteBuffer view) {
+        ByteBuffer copy = TileCodec.wrap(new byte[view.remaining()]);
+        copy.put(view).flip();
+        return copy;
+    }
 
-        if (matA.length == 0 || matB.length == 0) return data;
+    /** Work done by one pipeline stage for one task. */
+    private interface StageWork {
+        void run() throws Exception;
+    }
 
-        int[][] result = multiplyOptimized(matA, matB);
-        return matrixToStringFast(result);
+    /**
+     * Queues one stage of a task, skipped if the task has been cancelled by
+     * then. The master keeps within this worker's credits, so a stage queue
+     * only overflows if it does not; a rejected or failed stage fails the
+     * task back to the master.
+     */
+    private void runStage(PipelineStage stage, String taskId, StageWork work) {
+        try {
+            stage.execute(() -> {
+                if (!inFlight.contains(taskId)) return;
+                try {
+                    work.run();
+                } catch (CancellationException ignored) {
+                } catch (Exception e) {
+                    if (inFlight.remove(taskId)) sendTaskError(taskId, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (inFlight.remove(taskId)) sendTaskError(taskId, e);
+        }
     }
 
-    private int[][] parseMatrixFast(String str) {
-        if (str == null || str.isEmpty()) return new int[0][0];
+    /**
+     * Drops a task wherever it is in the pipeline: later stages skip it and
+     * a running kernel notices at its next row-panel boundary. Nothing is
+     * sent for the task.
+     */
+    private void cancelTask(String taskId) throws IOException {
+        if (inFlight.remove(taskId)) requestWork();
+    }
 
-        int rowCount = 1;
-        for (int i = 0; i < str.length(); i++) {
-            if (str.charAt(i) == ';') rowCount++;
+    private synchronized SharedMatrixRegion sharedRegion(String jobId, String path, boolean writable) throws IOException {
+        String key = jobId + ":" + path;
+        SharedMatrixRegion region = sharedRegions.get(key);
+        if (region == null) {
+            region = SharedMatrixRegion.open(Paths.get(path), writable);
+            sharedRegions.put(key, region);
         }
-        if (str.endsWith(";")) rowCount--;
+        return region;
+    }
 
-        String[] rows = str.split(";");
-        int[][] mat = new int[rows.length][];
+    /** Queues a finished result for the send stage, which batches whatever has queued up. */
+    private void completeTask(byte[] result) {
+        completedResults.add(result);
+        scheduleFlush();
+    }
 
-        for (int i = 0; i < rows.length; i++) {
-            String row = rows[i];
-            if (row.isEmpty()) {
-                mat[i] = new int[0];
-                continue;
-            }
+    /** Queues the id of a task whose result is already in the shared output region. */
+    private void completeSharedTask(String taskId) {
+        completedShared.add(taskId);
+        scheduleFlush();
+    }
 
-            int colCount = 1;
-            for (int j = 0; j < row.length(); j++) {
-                if (row.charAt(j) == ',') colCount++;
-            }
+    private void scheduleFlush() {
+        if (!flushScheduled.compareAndSet(false, true)) return;
+        try {
+            sendStage.execute(this::flushResults);
+        } catch (RejectedExecutionException e) {
+            flushScheduled.set(false);
+        }
+    }
 
-            mat[i] = new int[colCount];
-            int col = 0;
-            int num = 0;
-            boolean negative = false;
-            for (int j = 0; j <= row.length(); j++) {
-                char c = j < row.length() ? row.charAt(j) : ',';
-                if (c == '-') {
-                    negative = true;
-                } else if (c >= '0' && c <= '9') {
-                    num = num * 10 + (c - '0');
-                } else if (c == ',' || j == row.length()) {
-                    mat[i][col++] = negative ? -num : num;
-                    num = 0;
-                    negative = false;
+    /**
+     * Sends everything queued so far: results in frames of up to
+     * MAX_BATCH_BYTES, and shared-task ids newline-separated in one frame.
+     */
+    private void flushResults() {
+        flushScheduled.set(false);
+        try {
+            while (!completedResults.isEmpty() || !completedShared.isEmpty()) {
+                StringBuilder sharedIds = new StringBuilder();
+                String id;
+                while ((id = completedShared.poll()) != null) {
+                    if (sharedIds.length() > 0) sharedIds.append('\n');
+                    sharedIds.append(id);
+                }
+                if (sharedIds.length() > 0) {
+                    Message response = new Message("TASK_COMPLETE_SHARED", workerId, null);
+                    response.setPayloadFromString(sharedIds.toString());
+                    sendMessage(response);
+                }
+                List<byte[]> batch = new ArrayList<>();
+                int batchBytes = 0;
+                byte[] next;
+                while (batchBytes < MAX_BATCH_BYTES && (next = completedResults.poll()) != null) {
+                    batch.add(next);
+                    batchBytes += next.length;
                 }
+                if (batch.size() == 1) {
+                    sendMessage(new Message("TASK_COMPLETE", workerId, batch.get(0)));
+                } else if (!batch.isEmpty()) {
+                    sendMessage(new Message("TASK_COMPLETE_BATCH", workerId, encodeBatch(batch)));
+                }
+                if (!batch.isEmpty() || sharedIds.length() > 0) requestWork();
             }
+        } catch (IOException e) {
+            System.err.println("[" + workerId + "] Result send failed: " + e.getMessage());
         }
-        return mat;
     }
 
-    private int[][] multiplyOptimized(int[][] a, int[][] b) {
-        int rowsA = a.length;
-        int colsA = a[0].length;
-        int colsB = b[0].length;
-        int[][] c = new int[rowsA][colsB];
+    /** Per-stage totals for decode, compute, encode and send, in pipeline order. */
+    public List<PipelineStage.Timing> stageTimings() {
+        return Arrays.asList(decodeStage.timing(), computeStage.timing(), encodeStage.timing(),
+                sendStage.timing());
+    }
 
-        int[][] bT = new int[colsB][colsA];
-        for (int i = 0; i < colsA; i++) {
-            for (int j = 0; j < colsB; j++) {
-                bT[j][i] = b[i][j];
-            }
+    /**
+     * Times a small multiply on the kernel pool and returns the best of a
+     * few runs in GFLOPS, counting a multiply-add as two operations.
+     */
+    private double measureGflops() {
+        Matrix probe = MatrixGenerator.generateRandom(PROBE_SIZE, PROBE_SIZE, 100);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            BlockedMultiply.multiply(probe, probe, tileSize, kernelPool);
+            best = Math.min(best, System.nanoTime() - start);
         }
+        return 2.0 * PROBE_SIZE * PROBE_SIZE * PROBE_SIZE / Math.max(1, best);
+    }
 
-        for (int i = 0; i < rowsA; i++) {
-            int[] rowA = a[i];
-            int[] rowC = c[i];
-            for (int j = 0; j < colsB; j++) {
-                int[] colB = bT[j];
-                int sum = 0;
-                for (int k = 0; k < colsA; k++) {
-                    sum += rowA[k] * colB[k];
-                }
-                rowC[j] = sum;
-            }
-        }
-        return c;
+    /**
+     * Tells the master how many tasks this worker can run at once. The master
+     * sizes the worker's credit window and straggler deadlines from it, and in
+     * pull mode also tops the worker up from its queue.
+     */
+    private void requestWork() throws IOException {
+        Message request = new Message("WORK_REQUEST", workerId, null);
+        request.setPayloadFromString(Integer.toString(slots));
+        sendMessage(request);
     }
 
-    private String matrixToStringFast(int[][] mat) {
-        StringBuilder sb = new StringBuilder(mat.length * mat[0].length * 4);
-        for (int i = 0; i < mat.length; i++) {
-            int[] row = mat[i];
-            for (int j = 0; j < row.length; j++) {
-                sb.append(row[j]);
-                if (j < row.length - 1) sb.append(',');
-            }
-            if (i < mat.length - 1) sb.append(';');
+    private static byte[] encodeBatch(List<byte[]> entries) {
+        int size = Integer.BYTES;
+        for (byte[] e : entries) size += Integer.BYTES + e.length;
+        ByteBuffer buf = TileCodec.wrap(new byte[size]);
+        buf.putInt(entries.size());
+        for (byte[] e : entries) {
+            buf.putInt(e.length);
+            buf.put(e);
         }
-        return sb.toString();
+        return buf.array();
+    }
+
+    private void sendTaskError(String taskId, Exception e) {
+        try {
+            Message error = new Message("TASK_ERROR", workerId, null);
+            error.setPayloadFromString(taskId + "|" + e.getMessage());
+            sendMessage(error);
+        } catch (Exception ignored) {}
+    }
+
+    private void storeOperand(Message request) {
+        ByteBuffer payload = TileCodec.payload(request);
+        String key = TileCodec.operandKey(TileCodec.getString(payload), payload.getLong());
+        operands.put(key, TileCodec.readMatrix(payload));
+    }
+
+    private void evictOperands(Message request) {
+        String prefix = request.getPayloadAsString() + ":";
+        operands.keySet().removeIf(key -> key.startsWith(prefix));
+        sharedRegions.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private static int envInt(String name, int fallback) {
+        String value = System.getenv(name);
+        return value != null && !value.isEmpty() ? Integer.parseInt(value) : fallback;
+    }
+
+    private Matrix processMatrix(String taskType, Matrix matA, Matrix matB, String taskId) {
+        if (matA.rows() == 0 || matB.rows() == 0) return matA;
+        return multiplyOptimized(matA, matB, () -> !inFlight.contains(taskId));
+    }
+
+    private Matrix multiplyOptimized(Matrix a, Matrix b, BooleanSupplier cancelled) {
+        return BlockedMultiply.multiply(a, b, tileSize, kernelPool, cancelled);
     }
 
     private void sendMessage(Message msg) throws IOException {
-        synchronized (sendLock) {
-            byte[] data = msg.pack();
-            out.writeInt(data.length);
-            out.write(data);
-            out.flush();
-        }
+        frames.send(msg);
     }
 
     private Message receiveMessage() throws IOException {
-        int len = in.readInt();
-        if (len <= 0 || len > 100_000_000) return null;
-        byte[] data = new byte[len];
-        in.readFully(data);
-        return Message.unpack(data);
+        return frames.receive();
     }
 
     public void shutdown() {
         running.set(false);
-        taskPool.shutdownNow();
+        decodeStage.shutdownNow();
+        computeStage.shutdownNow();
+        encodeStage.shutdownNow();
+        sendStage.shutdownNow();
+        kernelPool.shutdownNow();
+        ioThreads.shutdownNow();
         try {
             if (socket != null && !socket.isClosed()) socket.close();
         } catch (IOException ignored) {}
     }
 
+    public void setTileSize(int tileSize) {
+        this.tileSize = Math.max(1, tileSize);
+    }
+
     public boolean isRunning() {
         return running.get();
     }
@@ -0,0 +1,101 @@
+package pdc;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * What a worker reported about itself: supported operations, core count,
+ * a measured multiply throughput, and how many tasks and task bytes it can
+ * hold at once (its credits). The wire form is the operation list followed
+ * by ";key=value" fields, e.g.
+ * {@code BLOCK_MULTIPLY,SUM;cores=8;gflops=3.2;credits=72;creditBytes=67108864};
+ * a bare "cores=N" or a bare operation list is also accepted. Unreported
+ * credits are unlimited.
+ */
+public final class WorkerCapabilities {
+
+    public static final WorkerCapabilities UNKNOWN = new WorkerCapabilities(Collections.emptySet(), 0, 0, 0, 0);
+
+    private final Set<String> operations;
+    private final int cores;
+    private final double gflops;
+    private final int credits;
+    private final long creditBytes;
+
+    public WorkerCapabilities(Set<String> operations, int cores, double gflops, int credits, long creditBytes) {
+        this.operations = Collections.unmodifiableSet(new LinkedHashSet<>(operations));
+        this.cores = cores;
+        this.gflops = gflops;
+        this.credits = credits;
+        this.creditBytes = creditBytes;
+    }
+
+    /** Parses the wire form, ignoring malformed fields. */
+    public static WorkerCapabilities parse(String text) {
+        if (text == null || text.trim().isEmpty()) return UNKNOWN;
+        Set<String> ops = new LinkedHashSet<>();
+        int cores = 0;
+        double gflops = 0;
+        int credits = 0;
+        long creditBytes = 0;
+        for (String field : text.split(";")) {
+            int eq = field.indexOf('=');
+            if (eq < 0) {
+                for (String op : field.split(",")) {
+                    if (!op.trim().isEmpty()) ops.add(op.trim());
+                }
+                continue;
+            }
+            String key = field.substring(0, eq).trim();
+            String value = field.substring(eq + 1).trim();
+            try {
+                if ("cores".equals(key)) cores = Integer.parseInt(value);
+                else if ("gflops".equals(key)) gflops = Double.parseDouble(value);
+                else if ("credits".equals(key)) credits = Integer.parseInt(value);
+                else if ("creditBytes".equals(key)) creditBytes = Long.parseLong(value);
+            } catch (NumberFormatException ignored) {}
+        }
+        return new WorkerCapabilities(ops, cores, gflops, credits, creditBytes);
+    }
+
+    /** Returns this record with unreported fields taken from {@code earlier}. */
+    public WorkerCapabilities merge(WorkerCapabilities earlier) {
+        return new WorkerCapabilities(operations.isEmpty() ? earlier.operations : operations,
+                cores > 0 ? cores : earlier.cores, gflops > 0 ? gflops : earlier.gflops,
+                credits > 0 ? credits : earlier.credits, creditBytes > 0 ? creditBytes : earlier.creditBytes);
+    }
+
+    /** True if the operation was reported, or if no operation list was reported at all. */
+    public boolean supports(String operation) {
+        return operations.isEmpty() || operations.contains(operation);
+    }
+
+    public Set<String> operations() {
+        return operations;
+    }
+
+    public int cores() {
+        return cores;
+    }
+
+    public double gflops() {
+        return gflops;
+    }
+
+    /** Tasks the worker can hold at once, or Integer.MAX_VALUE if unreported. */
+    public int credits() {
+        return credits > 0 ? credits : Integer.MAX_VALUE;
+    }
+
+    /** Task payload bytes the worker can hold at once, or Long.MAX_VALUE if unreported. */
+    public long creditBytes() {
+        return creditBytes > 0 ? creditBytes : Long.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return String.join(",", operations) + ";cores=" + cores + ";gflops=" + gflops
+                + ";credits=" + credits + ";creditBytes=" + creditBytes;
+    }
+}
@@ -0,0 +1,24 @@
+package pdc;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread sources for the default Java 11 build: I/O work runs on a cached
+ * pool of platform threads. The Java 21 build swaps in a virtual-thread
+ * version of this class from src/main/java21.
+ */
+public final class Threads {
+
+    private Threads() {}
+
+    /**
+     * Returns an executor for blocking I/O work such as socket readers,
+     * sends and handshakes. Threads are named {@code name-0}, {@code name-1}, ...
+     */
+    public static ExecutorService newIoExecutor(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> new Thread(r, name + "-" + count.getAndIncrement()));
+    }
+}
@@ -0,0 +1,22 @@
+package pdc;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Thread sources for the Java 21 build: each piece of I/O work gets its own
+ * virtual thread, so thousands of blocked readers and sends cost heap
+ * rather than platform threads. Compute pools are unaffected.
+ */
+public final class Threads {
+
+    private Threads() {}
+
+    /**
+     * Returns an executor for blocking I/O work such as socket readers,
+     * sends and handshakes. Threads are named {@code name-0}, {@code name-1}, ...
+     */
+    public static ExecutorService newIoExecutor(String name) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+    }
+}
@@ -0,0 +1,80 @@
+package pdc;
+
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit 5 tests for the BlockedMultiply kernel.
+ * Tests tiled, serial and panel-parallel products against a naive multiply.
+ */
+class BlockedMultiplyTest {
+
+    private static int[][] naive(int[][] a, int[][] b) {
+        int[][] c = new int[a.length][b[0].length];
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < b[0].length; j++) {
+                int sum = 0;
+                for (int k = 0; k < b.length; k++) {
+                    sum += a[i][k] * b[k][j];
+                }
+                c[i][j] = sum;
+            }
+        }
+        return c;
+    }
+
+    @Test
+    void testMultiply_RaggedTiles() {
+        int[][] a = MatrixGenerator.generateRandomMatrix(13, 37, 50);
+        int[][] b = MatrixGenerator.generateRandomMatrix(37, 29, 50);
+        assertArrayEquals(naive(a, b), BlockedMultiply.multiply(a, b, 8, null));
+    }
+
+    @Test
+    void testMultiply_ParallelPanels() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            int[][] a = MatrixGenerator.generateRandomMatrix(150, 130, 20);
+            int[][] b = MatrixGenerator.generateRandomMatrix(130, 170, 20);
+            assertArrayEquals(naive(a, b), BlockedMultiply.multiply(a, b, 16, pool));
+
+            int[][] wide = MatrixGenerator.generateRandomMatrix(3, 200, 20);
+            int[][] tall = MatrixGenerator.generateRandomMatrix(200, 2000, 20);
+            assertArrayEquals(naive(wide, tall), BlockedMultiply.multiply(wide, tall, 32, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testMultiply_SerialStaysOnCallingThread() {
+        Matrix a = MatrixGenerator.generateRandom(150, 130, 20);
+        Matrix b = MatrixGenerator.generateRandom(130, 170, 20);
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        Matrix c = BlockedMultiply.multiply(a, b, 16, null, () -> {
+            threads.add(Thread.currentThread());
+            return false;
+        });
+        assertArrayEquals(naive(a.toArray(), b.toArray()), c.toArray());
+        assertEquals(Set.of(Thread.currentThread()), threads);
+    }
+
+    @Test
+    void testMultiply_Empty() {
+        assertEquals(0, BlockedMultiply.multiply(new int[0][0], new int[0][0], 8, null).length);
+    }
+
+    @Test
+    void testMultiply_Cancelled() {
+        Matrix a = MatrixGenerator.generateRandom(200, 200, 20);
+        AtomicInteger polls = new AtomicInteger();
+        assertThrows(CancellationException.class,
+                () -> BlockedMultiply.multiply(a, a, 16, null, () -> polls.incrementAndGet() > 3));
+    }
+}
@@ -0,0 +1,52 @@
+package pdc;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit 5 tests for the FairShareQueue class.
+ * Tests weighted interleaving across jobs and strict priority.
+ */
+class FairShareQueueTest {
+
+    private static final class Item {
+        final FairShareQueue.Share share;
+        final String name;
+
+        Item(FairShareQueue.Share share, String name) {
+            this.share = share;
+            this.name = name;
+        }
+    }
+
+    @Test
+    void testPoll_InterleavesByWeight() {
+        FairShareQueue<Item> queue = new FairShareQueue<>(i -> i.share, i -> 10);
+        FairShareQueue.Share big = new FairShareQueue.Share("big", 0, 1);
+        FairShareQueue.Share heavy = new FairShareQueue.Share("heavy", 0, 3);
+        for (int i = 0; i < 8; i++) queue.add(new Item(big, "b"));
+        for (int i = 0; i < 8; i++) queue.add(new Item(heavy, "h"));
+
+        StringBuilder order = new StringBuilder();
+        for (int i = 0; i < 8; i++) order.append(queue.poll().name);
+        assertEquals(2, order.chars().filter(c -> c == 'b').count(), order.toString());
+        assertEquals(8, queue.size());
+    }
+
+    @Test
+    void testPoll_PriorityFirstAndEligibility() {
+        FairShareQueue<Item> queue = new FairShareQueue<>(i -> i.share, i -> 1);
+        FairShareQueue.Share low = new FairShareQueue.Share("low", 0, 100);
+        FairShareQueue.Share high = new FairShareQueue.Share("high", 5, 1);
+        queue.add(new Item(low, "l"));
+        queue.add(new Item(high, "h"));
+        queue.add(new Item(high, "h"));
+
+        assertEquals("l", queue.poll(i -> i.share == low).name);
+        assertEquals("h", queue.peek().name);
+        queue.removeIf(i -> i.share == high);
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        assertThrows(IllegalArgumentException.class, () -> new FairShareQueue.Share("x", 0, 0));
+    }
+}
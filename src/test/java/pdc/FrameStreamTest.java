@@ -0,0 +1,77 @@
+package pdc;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit 5 tests for the FrameStream class.
+ * Tests ordering under concurrent senders and closing after queued frames.
+ */
+class FrameStreamTest {
+
+    @Test
+    void testSend_ConcurrentProducersKeepPerSenderOrder() throws Exception {
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        ExecutorService producers = Executors.newFixedThreadPool(4);
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+             Socket client = new Socket(server.getInetAddress(), server.getLocalPort());
+             Socket accepted = server.accept()) {
+            FrameStream out = new FrameStream(client, 8192, writer);
+            FrameStream in = new FrameStream(accepted, 8192, writer);
+            int perSender = 200;
+            for (int p = 0; p < 4; p++) {
+                String sender = "p" + p;
+                producers.submit(() -> {
+                    for (int i = 0; i < perSender; i++) {
+                        Message msg = new Message("HEARTBEAT", sender, null);
+                        msg.setPayloadFromString(Integer.toString(i));
+                        out.send(msg);
+                    }
+                    return null;
+                });
+            }
+            List<List<Integer>> seen = new ArrayList<>();
+            for (int p = 0; p < 4; p++) seen.add(new ArrayList<>());
+            for (int n = 0; n < 4 * perSender; n++) {
+                Message msg = in.receive();
+                seen.get(msg.studentId.charAt(1) - '0').add(Integer.parseInt(msg.getPayloadAsString()));
+            }
+            for (List<Integer> s : seen) {
+                assertEquals(perSender, s.size());
+                for (int i = 0; i < perSender; i++) assertEquals(i, s.get(i));
+            }
+        } finally {
+            producers.shutdownNow();
+            writer.shutdownNow();
+        }
+    }
+
+    @Test
+    void testClose_WritesQueuedFramesFirst() throws Exception {
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+             Socket client = new Socket(server.getInetAddress(), server.getLocalPort());
+             Socket accepted = server.accept()) {
+            FrameStream out = new FrameStream(client, 8192, writer);
+            out.send(new Message("SHUTDOWN", "master", null));
+            out.close();
+            assertThrows(IOException.class, () -> out.send(new Message("HEARTBEAT", "master", null)));
+
+            FrameStream in = new FrameStream(accepted, 8192, writer);
+            assertEquals("SHUTDOWN", in.receive().messageType);
+            assertThrows(EOFException.class, in::receive);
+        } finally {
+            writer.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package pdc;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit 5 tests for the GranularityController class.
+ * Tests size classes and how recorded jobs move the task count.
+ */
+class GranularityControllerTest {
+
+    @Test
+    void testSizeClass_Buckets() {
+        assertEquals(GranularityController.sizeClass(300, 300), GranularityController.sizeClass(512, 400));
+        assertNotEquals(GranularityController.sizeClass(512, 512), GranularityController.sizeClass(513, 513));
+    }
+
+    @Test
+    void testRecord_AdjustsTaskCount() {
+        GranularityController g = new GranularityController();
+        int c = GranularityController.sizeClass(1000, 1000);
+        int k = g.tasksPerWorker(c);
+
+        g.record(c, k, 10, 1000, 0.5);
+        assertEquals(k * 2, g.tasksPerWorker(c), "cheap but uneven jobs split finer");
+
+        g.record(c, k * 2, 600, 1000, 0.5);
+        assertEquals(k, g.tasksPerWorker(c), "overhead-bound jobs split coarser");
+
+        g.record(c, 1, 900, 1000, 0);
+        assertEquals(GranularityController.MIN_TASKS, g.tasksPerWorker(c));
+        assertEquals(k, g.tasksPerWorker(c + 1), "other size classes are unaffected");
+    }
+}
@@ -0,0 +1,35 @@
+package pdc;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit 5 tests for the LatencyTracker class.
+ * Tests size-normalized EWMA and cluster-wide percentiles.
+ */
+class LatencyTrackerTest {
+
+    @Test
+    void testEwma_NormalizedBySize() {
+        LatencyTracker tracker = new LatencyTracker();
+        assertEquals(0.0, tracker.ewma("w1"));
+        tracker.record("w1", 1000, 100);
+        tracker.record("w1", 4000, 400);
+        assertEquals(10.0, tracker.ewma("w1"), 1e-9);
+        tracker.record("w1", 2000, 100);
+        assertTrue(tracker.ewma("w1") > 10.0 && tracker.ewma("w1") < 20.0);
+        tracker.forget("w1");
+        assertEquals(0.0, tracker.ewma("w1"));
+    }
+
+    @Test
+    void testPercentile_AcrossWorkers() {
+        LatencyTracker tracker = new LatencyTracker();
+        assertEquals(0.0, tracker.percentile(0.9));
+        for (int i = 1; i <= 10; i++) {
+            tracker.record("w" + (i % 3), i, 1);
+        }
+        assertEquals(5.0, tracker.percentile(0.5), 1e-9);
+        assertEquals(9.0, tracker.percentile(0.9), 1e-9);
+    }
+}
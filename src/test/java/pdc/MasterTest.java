@@ -1,12 +1,37 @@
 package pdc;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * JUnit 5 tests for the Master class.
- * Tests system coordination and asynchronous listener setup.
+ * Tests system coordination, asynchronous listener setup, weighted row
+ * splits, tile traffic, streaming deadlines, pull scheduling, speculative
+ * copies, the NIO transport, task batches, shared-memory jobs, operand
+ * broadcast, credit windows and shutdown during a job.
  */
 class MasterTest {
 
@@ -17,6 +42,185 @@ class MasterTest {
         master = new Master();
     }
 
+    /** Starts in-process workers against a listening master and waits for them to register. */
+    private static List<Worker> startWorkers(Master target, int count) throws InterruptedException {
+        int expected = target.getWorkerCount() + count;
+        List<Worker> started = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Worker worker = new Worker("test-worker-" + i);
+            Thread thread = new Thread(() -> {
+                worker.joinCluster("localhost", target.getPort());
+                worker.execute();
+            });
+            thread.setDaemon(true);
+            thread.start();
+            started.add(worker);
+        }
+        awaitTrue(() -> target.getWorkerCount() >= expected, "Workers should register");
+        return started;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertTrue(condition.getAsBoolean(), message);
+    }
+
+    /** A master that splits each worker's rows into eight tasks for matrices of side n. */
+    private static Master eightTasksPerWorker(int n) {
+        GranularityController granularity = new GranularityController();
+        granularity.record(GranularityController.sizeClass(n, n), 4, 0, 1, 1.0);
+        return new Master(granularity);
+    }
+
+    /**
+     * A worker played by the test over a raw socket: it registers, answers
+     * heartbeats and records the type of every frame it receives. Tasks are
+     * answered in arrival order after a fixed delay each, or never when the
+     * delay is negative.
+     */
+    private static class ScriptedWorker implements Closeable {
+        final List<String> received = new CopyOnWriteArrayList<>();
+        final AtomicInteger tasks = new AtomicInteger();
+        final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicInteger maxOutstanding = new AtomicInteger();
+        final String workerId;
+        volatile boolean batchReplies;
+        private final int slots;
+        private final long answerDelayMs;
+        private final Map<String, Matrix> operands = new ConcurrentHashMap<>();
+        private final Socket socket;
+        private final ExecutorService writer = Executors.newSingleThreadExecutor();
+        private final ExecutorService answers = Executors.newSingleThreadExecutor();
+        private final FrameStream frames;
+
+        ScriptedWorker(String workerId, Master target, int slots, int credits, long answerDelayMs) throws Exception {
+            this.workerId = workerId;
+            this.slots = slots;
+            this.answerDelayMs = answerDelayMs;
+            int expected = target.getWorkerCount() + 1;
+            socket = new Socket(InetAddress.getLoopbackAddress(), target.getPort());
+            frames = new FrameStream(socket, 65536, writer);
+            send("REGISTER_WORKER", "cores=" + slots);
+            assertEquals("WORKER_ACK", frames.receive().messageType);
+            send("REGISTER_CAPABILITIES",
+                    new WorkerCapabilities(Set.of("BLOCK_MULTIPLY"), slots, 0, credits, 0).toString());
+            send("WORK_REQUEST", String.valueOf(slots));
+            Thread reader = new Thread(this::readLoop, workerId);
+            reader.setDaemon(true);
+            reader.start();
+            awaitTrue(() -> target.getWorkerCount() >= expected, "Scripted worker should register");
+        }
+
+        void send(String type, String payload) throws IOException {
+            Message msg = new Message(type, workerId, null);
+            msg.setPayloadFromString(payload);
+            frames.send(msg);
+        }
+
+        /** Handles one frame; the payload is only valid during the call. */
+        void onFrame(Message msg) throws Exception {
+            ByteBuffer payload = TileCodec.payload(msg);
+            switch (msg.messageType) {
+                case "HEARTBEAT":
+                    send("HEARTBEAT", "ACK");
+                    break;
+                case "OPERAND_PUT":
+                    String key = TileCodec.operandKey(TileCodec.getString(payload), payload.getLong());
+                    operands.put(key, TileCodec.readMatrix(payload));
+                    break;
+                case "OPERAND_EVICT":
+                    String prefix = msg.getPayloadAsString() + ":";
+                    operands.keySet().removeIf(k -> k.startsWith(prefix));
+                    break;
+                case "RPC_REQUEST":
+                    answer(List.of(payload));
+                    break;
+                case "TASK_BATCH":
+                    List<ByteBuffer> batch = new ArrayList<>();
+                    for (int i = payload.getInt(); i > 0; i--) {
+                        int len = payload.getInt();
+                        ByteBuffer entry = payload.slice().order(payload.order());
+                        entry.limit(len);
+                        payload.position(payload.position() + len);
+                        batch.add(entry);
+                    }
+                    answer(batch);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /** Counts tasks as they arrive and queues their results for the answering thread. */
+        void answer(List<ByteBuffer> batch) {
+            tasks.addAndGet(batch.size());
+            maxOutstanding.accumulateAndGet(outstanding.addAndGet(batch.size()), Math::max);
+            if (answerDelayMs < 0) return;
+            List<byte[]> results = new ArrayList<>();
+            for (ByteBuffer task : batch) results.add(compute(task));
+            answers.execute(() -> reply(results));
+        }
+
+        private void reply(List<byte[]> results) {
+            try {
+                Thread.sleep(answerDelayMs);
+                outstanding.addAndGet(-results.size());
+                if (batchReplies && results.size() > 1) {
+                    int size = Integer.BYTES;
+                    for (byte[] r : results) size += Integer.BYTES + r.length;
+                    ByteBuffer buf = TileCodec.wrap(new byte[size]);
+                    buf.putInt(results.size());
+                    for (byte[] r : results) buf.putInt(r.length).put(r);
+                    frames.send(new Message("TASK_COMPLETE_BATCH", workerId, buf.array()));
+                } else {
+                    for (byte[] r : results) frames.send(new Message("TASK_COMPLETE", workerId, r));
+                }
+                send("WORK_REQUEST", String.valueOf(slots));
+            } catch (Exception closed) {
+                // socket closed by the test or the master
+            }
+        }
+
+        /** Multiplies a task's A rows by its operand and encodes the TASK_COMPLETE payload. */
+        byte[] compute(ByteBuffer task) {
+            String taskId = TileCodec.getString(task);
+            TileCodec.getString(task);
+            String key = TileCodec.operandKey(TileCodec.getString(task), task.getLong());
+            Matrix result = BlockedMultiply.multiply(TileCodec.readMatrix(task), operands.get(key), 16, null);
+            byte[] out = new byte[TileCodec.stringBytes(taskId) + 2 * Long.BYTES
+                    + TileCodec.tileBytes(result.rows(), result.cols())];
+            ByteBuffer buf = TileCodec.wrap(out);
+            TileCodec.putString(buf, taskId);
+            buf.putLong(0).putLong(0);
+            TileCodec.writeTile(buf, result);
+            return out;
+        }
+
+        int count(String type) {
+            return (int) received.stream().filter(type::equals).count();
+        }
+
+        private void readLoop() {
+            try {
+                Message msg;
+                while ((msg = frames.receive()) != null) {
+                    received.add(msg.messageType);
+                    onFrame(msg);
+                }
+            } catch (Exception closed) {
+                // socket closed by the test or the master
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+            answers.shutdownNow();
+            writer.shutdownNow();
+        }
+    }
+
     @Test
     void testCoordinate_Structure() {
         // High level test to ensure the engine starts
@@ -39,4 +243,243 @@ class MasterTest {
             master.reconcileState();
         }, "State reconciliation should be a callable system maintenance task");
     }
+
+    @Test
+    void testTileGrid_Shape() {
+        assertArrayEquals(new int[] { 2, 2 }, Master.tileGrid(400, 400, 4));
+        assertArrayEquals(new int[] { 1, 4 }, Master.tileGrid(2, 400, 4));
+        assertArrayEquals(new int[] { 3, 1 }, Master.tileGrid(400, 400, 3));
+    }
+
+    @Test
+    void testWeightedCuts_Proportional() {
+        assertArrayEquals(new int[] { 0, 20, 100 }, Master.weightedCuts(100, new double[] { 4, 16 }));
+        assertArrayEquals(new int[] { 0, 0, 1 }, Master.weightedCuts(1, new double[] { 1, 8 }));
+    }
+
+    @Test
+    void testTiles_EachWorkerReceivesOnePanelOfEachOperand() throws Exception {
+        int n = 128;
+        master.setPartitioning(Master.Partitioning.TILES);
+        master.listen(0);
+        List<Worker> started = startWorkers(master, 4);
+        try {
+            int[][] a = MatrixGenerator.generateRandomMatrix(n, n, 10);
+            Object result = master.coordinate("BLOCK_MULTIPLY", a, 4);
+            assertArrayEquals(BlockedMultiply.multiply(a, a, 16, null), (int[][]) result);
+
+            // a 2 x 2 grid: half of A's rows and half of B's columns per worker, each shipped once
+            long tile = (long) n * n / 2 * Integer.BYTES;
+            Map<String, Long> sent = master.bytesSentPerWorker();
+            assertEquals(4, sent.size());
+            for (long bytes : sent.values()) {
+                assertTrue(bytes >= 2 * tile, "Each worker should get its panels: " + sent);
+                assertTrue(bytes < 2 * tile + 4096, "No panel should ship twice: " + sent);
+            }
+        } finally {
+            master.shutdown();
+            started.forEach(Worker::shutdown);
+        }
+    }
+
+    @Test
+    void testStreaming_SlowSubscriberDoesNotUseUpDeadline() throws Exception {
+        int n = 64;
+        Master streaming = eightTasksPerWorker(n);
+        streaming.setJobTimeoutMs(400);
+        streaming.listen(0);
+        List<Worker> started = startWorkers(streaming, 1);
+        try {
+            int[][] a = MatrixGenerator.generateRandomMatrix(n, n, 10);
+            int[][] expected = BlockedMultiply.multiply(a, a, 16, null);
+            int[][] got = new int[n][];
+            AtomicInteger bands = new AtomicInteger();
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            streaming.coordinateStreaming("BLOCK_MULTIPLY", Matrix.fromArray(a), 1).subscribe(
+                    new Flow.Subscriber<ResultStream.RowBlock>() {
+                        private Flow.Subscription subscription;
+
+                        @Override
+                        public void onSubscribe(Flow.Subscription s) {
+                            subscription = s;
+                            s.request(1);
+                        }
+
+                        @Override
+                        public void onNext(ResultStream.RowBlock block) {
+                            int[][] rows = block.rows().toArray();
+                            System.arraycopy(rows, 0, got, block.startRow(), rows.length);
+                            bands.incrementAndGet();
+                            try {
+                                Thread.sleep(150);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            subscription.request(1);
+                        }
+
+                        @Override
+                        public void onError(Throwable t) {
+                            done.completeExceptionally(t);
+                        }
+
+                        @Override
+                        public void onComplete() {
+                            done.complete(null);
+                        }
+                    });
+            done.get(30, TimeUnit.SECONDS);
+            assertTrue(bands.get() > 4, "Stream should outlast the deadline several times over");
+            assertArrayEquals(expected, got);
+        } finally {
+            streaming.shutdown();
+            started.forEach(Worker::shutdown);
+        }
+    }
+
+    @Test
+    void testShutdown_ReleasesCoordinateMidJob() throws Exception {
+        master.listen(0);
+        try (ScriptedWorker stuck = new ScriptedWorker("stuck", master, 1, 0, -1)) {
+            int[][] a = MatrixGenerator.generateRandomMatrix(32, 32, 10);
+            CompletableFuture<Object> call = new CompletableFuture<>();
+            Thread caller = new Thread(() -> call.complete(master.coordinate("BLOCK_MULTIPLY", a, 1)));
+            caller.setDaemon(true);
+            caller.start();
+            awaitTrue(() -> stuck.count("RPC_REQUEST") + stuck.count("TASK_BATCH") > 0, "Job should start");
+
+            master.shutdown();
+            assertDoesNotThrow(() -> call.get(5, TimeUnit.SECONDS), "coordinate should return after shutdown");
+        }
+    }
+
+    @Test
+    void testPull_SlowWorkerPullsFewerTasks() throws Exception {
+        int n = 128;
+        Master pull = eightTasksPerWorker(n);
+        pull.setScheduling(Master.Scheduling.PULL);
+        pull.listen(0);
+        List<Worker> started = startWorkers(pull, 1);
+        try (ScriptedWorker slow = new ScriptedWorker("slow", pull, 1, 0, 200)) {
+            int[][] a = MatrixGenerator.generateRandomMatrix(n, n, 10);
+            Object result = pull.coordinate("BLOCK_MULTIPLY", a, 2);
+            assertArrayEquals(BlockedMultiply.multiply(a, a, 16, null), (int[][]) result);
+            // 16 tasks in all; the fast worker should have pulled most of them
+            assertTrue(slow.tasks.get() > 0, "The slow worker should still get work");
+            assertTrue(slow.tasks.get() < 8, "The slow worker pulled " + slow.tasks.get() + " of 16 tasks");
+        } finally {
+            pull.shutdown();
+            started.forEach(Worker::shutdown);
+        }
+    }
+
+    @Test
+    void testSpeculation_CancelsStuckCopyAndReleasesItsCredit() throws Exception {
+        master.listen(0);
+        List<Worker> started = startWorkers(master, 1);
+        try (ScriptedWorker stuck = new ScriptedWorker("stuck", master, 1, 1, -1)) {
+            int[][] a = MatrixGenerator.generateRandomMatrix(64, 64, 10);
+            Object result = master.coordinate("BLOCK_MULTIPLY", a, 2);
+            assertArrayEquals(BlockedMultiply.multiply(a, a, 16, null), (int[][]) result);
+            awaitTrue(() -> stuck.count("TASK_CANCEL") > 0, "The stuck copy should be cancelled");
+            // one credit: the second task reaches the stuck worker only once the first copy's credit is back
+            assertEquals(2, stuck.tasks.get(), "The stuck worker's credit should be released");
+        } finally {
+            master.shutdown();
+            started.forEach(Worker::shutdown);
+        }
+    }
+
+    @Test
+    void testNio_CoordinatesWithWorkers() throws Exception {
+        master.setTransport(Master.Transport.NIO);
+        master.listen(0);
+        List<Worker> started = startWorkers(master, 2);
+        try {
+            int[][] a = MatrixGenerator.generateRandomMatrix(96, 96, 10);
+            Object result = master.coordinate("BLOCK_MULTIPLY", a, 2);
+            assertArrayEquals(BlockedMultiply.multiply(a, a, 16, null), (int[][]) result);
+        } finally {
+            master.shutdown();
+            started.forEach(Worker::shutdown);
+        }
+    }
+
+    @Test
+    void testBatch_TasksAndResultsTravelInBatches() throws Exception {
+        int n = 64;
+        Master batching = eightTasksPerWorker(n);
+        batching.listen(0);
+        try (ScriptedWorker worker = new ScriptedWorker("batching", batching, 4, 8, 0)) {
+            worker.batchReplies = true;
+            int[][] a = MatrixGenerator.generateRandomMatrix(n, n, 10);
+            Object result = batching.coordinate("BLOCK_MULTIPLY", a, 1);
+            assertArrayEquals(BlockedMultiply.multiply(a, a, 16, null), (int[][]) result);
+            assertEquals(8, worker.tasks.get());
+            assertTrue(worker.count("TASK_BATCH") > 0, "Tasks within the credit window should share a frame");
+        } finally {
+            batching.shutdown();
+        }
+    }
+
+    @Test
+    void testShared_CoordinatesThroughRegionFilesAndRemovesThem(@TempDir Path dir) throws Exception {
+        int n = 128;
+        master.setSharedMatrixDir(dir);
+        master.listen(0);
+        List<Worker> started = startWorkers(master, 1);
+        try {
+            int[][] a = MatrixGenerator.generateRandomMatrix(n, n, 10);
+            Object result = master.coordinate("BLOCK_MULTIPLY", a, 1);
+            assertArrayEquals(BlockedMultiply.multiply(a, a, 16, null), (int[][]) result);
+            // descriptors only: neither operand crosses the socket
+            long sent = master.bytesSentPerWorker().values().iterator().next();
+            assertTrue(sent < (long) n * n, "Sent " + sent + " bytes for a shared job");
+            try (var files = Files.list(dir)) {
+                assertEquals(0, files.count(), "Region files should be removed after the job");
+            }
+        } finally {
+            master.shutdown();
+            started.forEach(Worker::shutdown);
+        }
+    }
+
+    @Test
+    void testOperands_SentOncePerJobAndEvictedAfter() throws Exception {
+        int n = 64;
+        Master broadcasting = eightTasksPerWorker(n);
+        broadcasting.listen(0);
+        try (ScriptedWorker worker = new ScriptedWorker("operands", broadcasting, 1, 0, 0)) {
+            for (int job = 1; job <= 2; job++) {
+                int[][] a = MatrixGenerator.generateRandomMatrix(n, n, 10);
+                Object result = broadcasting.coordinate("BLOCK_MULTIPLY", a, 1);
+                assertArrayEquals(BlockedMultiply.multiply(a, a, 16, null), (int[][]) result);
+                assertEquals(8 * job, worker.tasks.get());
+                assertEquals(job, worker.count("OPERAND_PUT"), "One operand per job, however many tasks use it");
+                int evicted = job;
+                awaitTrue(() -> worker.count("OPERAND_EVICT") == evicted, "The job's operand should be evicted");
+                assertTrue(worker.operands.isEmpty());
+            }
+        } finally {
+            broadcasting.shutdown();
+        }
+    }
+
+    @Test
+    void testCredits_LimitTasksInFlight() throws Exception {
+        int n = 64;
+        Master limited = eightTasksPerWorker(n);
+        limited.listen(0);
+        try (ScriptedWorker oneCredit = new ScriptedWorker("one-credit", limited, 1, 1, 20);
+             ScriptedWorker unlimited = new ScriptedWorker("unlimited", limited, 1, 0, 20)) {
+            int[][] a = MatrixGenerator.generateRandomMatrix(n, n, 10);
+            Object result = limited.coordinate("BLOCK_MULTIPLY", a, 2);
+            assertArrayEquals(BlockedMultiply.multiply(a, a, 16, null), (int[][]) result);
+            assertEquals(1, oneCredit.maxOutstanding.get(), "One credit allows one task in flight");
+            // no credit limit reported: one slot times the dispatch depth of two
+            assertEquals(2, unlimited.maxOutstanding.get(), "One slot allows the dispatch depth in flight");
+        } finally {
+            limited.shutdown();
+        }
+    }
 }
@@ -0,0 +1,46 @@
+package pdc;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit 5 tests for the Matrix class.
+ * Tests int[][] conversion, row-block views, and tile encoding of views.
+ */
+class MatrixTest {
+
+    @Test
+    void testFromArray_RoundTrip() {
+        int[][] data = MatrixGenerator.generateRandomMatrix(6, 4, 100);
+        Matrix m = Matrix.fromArray(data);
+        assertEquals(6, m.rows());
+        assertEquals(4, m.cols());
+        assertEquals(data[3][2], m.get(3, 2));
+        assertArrayEquals(data, m.toArray());
+    }
+
+    @Test
+    void testRowBlock_SharesStorage() {
+        Matrix m = MatrixGenerator.generateRandom(8, 5, 100);
+        Matrix block = m.rowBlock(2, 5);
+        assertSame(m.data(), block.data());
+        block.set(0, 1, -7);
+        assertEquals(-7, m.get(2, 1));
+
+        Matrix copy = new Matrix(8, 5);
+        copy.setRows(2, block);
+        assertEquals(block, copy.rowBlock(2, 5));
+    }
+
+    @Test
+    void testTile_ViewRoundTrip() {
+        Matrix m = MatrixGenerator.generateRandom(9, 7, 100);
+        Matrix block = m.rowBlock(3, 8);
+        ByteBuffer buf = TileCodec.wrap(new byte[TileCodec.tileBytes(block.rows(), block.cols())]);
+        TileCodec.writeTile(buf, block);
+        buf.flip();
+        assertEquals(block, TileCodec.readMatrix(buf));
+    }
+}
@@ -0,0 +1,58 @@
+package pdc;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit 5 tests for the Message class.
+ * Tests buffer framing and compatibility with pack/unpack.
+ */
+class MessageTest {
+
+    @Test
+    void testWriteTo_MatchesPack() {
+        Message msg = new Message("RPC_REQUEST", "student", new byte[] { 1, 2, 3 });
+        ByteBuffer buf = ByteBuffer.allocate(msg.encodedSize());
+        msg.writeTo(buf);
+        assertFalse(buf.hasRemaining(), "encodedSize should match the bytes written");
+        assertArrayEquals(msg.pack(), buf.array());
+    }
+
+    @Test
+    void testReadFrom_PayloadIsView() {
+        Message msg = new Message("TASK_COMPLETE", "worker-1", new byte[] { 9, 8, 7 });
+        ByteBuffer buf = ByteBuffer.wrap(msg.pack());
+        Message read = Message.readFrom(buf);
+
+        assertNotNull(read);
+        assertSame("TASK_COMPLETE", read.messageType, "Known types should be interned");
+        assertEquals("worker-1", read.studentId);
+        assertEquals(msg.timestamp, read.timestamp);
+        assertDoesNotThrow(read::validate);
+
+        buf.array()[buf.capacity() - 1] = 42;
+        assertEquals(42, read.payloadBuffer().get(2), "Payload should share the frame buffer");
+    }
+
+    @Test
+    void testUnpack_CopiesPayload() {
+        Message msg = new Message("HEARTBEAT", "worker-1", null);
+        msg.setPayloadFromString("ACK");
+        Message read = Message.unpack(msg.pack());
+
+        assertNotNull(read);
+        assertEquals("ACK", read.getPayloadAsString());
+        assertArrayEquals(msg.payload, read.payload);
+    }
+
+    @Test
+    void testReadFrom_Truncated() {
+        byte[] data = new Message("HEARTBEAT", "worker-1", new byte[16]).pack();
+        ByteBuffer buf = ByteBuffer.wrap(data, 0, data.length - 4);
+        assertNull(Message.readFrom(buf));
+        assertNull(Message.unpack(Arrays.copyOf(data, data.length - 4)));
+    }
+}
@@ -0,0 +1,112 @@
+package pdc;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit 5 tests for the NioTransport class.
+ * Tests reassembly of split and oversized frames and closing after a partial write.
+ */
+class NioTransportTest {
+
+    private static byte[] frame(Message msg) {
+        ByteBuffer buf = ByteBuffer.allocate(Integer.BYTES + msg.encodedSize());
+        buf.putInt(msg.encodedSize());
+        msg.writeTo(buf);
+        return buf.array();
+    }
+
+    private static byte[] filled(int size) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) bytes[i] = (byte) (i * 31);
+        return bytes;
+    }
+
+    @Test
+    void testRead_ReassemblesChunkedAndOversizedFrames() throws Exception {
+        BlockingQueue<Message> received = new LinkedBlockingQueue<>();
+        NioTransport nio = new NioTransport(1, new NioTransport.Handler() {
+            @Override
+            public void onFrame(NioTransport.Connection conn, Message msg) {
+                received.add(new Message(msg.messageType, msg.studentId, msg.getPayload()));
+            }
+
+            @Override
+            public void onClose(NioTransport.Connection conn) {}
+        });
+        nio.bind(0);
+        byte[] large = filled(200_000);
+        try (Socket client = new Socket(InetAddress.getLoopbackAddress(), nio.localPort())) {
+            OutputStream out = client.getOutputStream();
+            byte[] small = frame(new Message("HEARTBEAT", "w1", "split".getBytes()));
+            for (int i = 0; i < small.length; i += 3) {
+                out.write(small, i, Math.min(3, small.length - i));
+                out.flush();
+                Thread.sleep(2);
+            }
+            out.write(frame(new Message("TASK_COMPLETE", "w1", large)));
+            out.flush();
+
+            Message first = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(first);
+            assertEquals("HEARTBEAT", first.messageType);
+            assertEquals("split", first.getPayloadAsString());
+            Message second = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(second);
+            assertEquals("TASK_COMPLETE", second.messageType);
+            assertArrayEquals(large, second.getPayload());
+        } finally {
+            nio.close();
+        }
+    }
+
+    @Test
+    void testCloseAfterFlush_DeliversPartiallyWrittenFrame() throws Exception {
+        byte[] large = filled(8 * 1024 * 1024);
+        NioTransport nio = new NioTransport(1, new NioTransport.Handler() {
+            @Override
+            public void onFrame(NioTransport.Connection conn, Message msg) {
+                try {
+                    conn.send(new Message("TASK_COMPLETE", "master", large));
+                    conn.closeAfterFlush();
+                } catch (IOException e) {
+                    conn.close();
+                }
+            }
+
+            @Override
+            public void onClose(NioTransport.Connection conn) {}
+        });
+        nio.bind(0);
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try (Socket client = new Socket()) {
+            client.setReceiveBufferSize(4096);
+            client.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), nio.localPort()));
+            FrameStream stream = new FrameStream(client, 8192, writer);
+            stream.send(new Message("HEARTBEAT", "w1", null));
+            Thread.sleep(200);
+
+            Message reply = stream.receive();
+            assertEquals("TASK_COMPLETE", reply.messageType);
+            assertTrue(Arrays.equals(large, reply.getPayload()), "Frame should arrive whole before the close");
+            assertThrows(EOFException.class, stream::receive);
+        } finally {
+            writer.shutdownNow();
+            nio.close();
+        }
+    }
+}
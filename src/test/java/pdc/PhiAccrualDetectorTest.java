@@ -0,0 +1,46 @@
+package pdc;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit 5 tests for the PhiAccrualDetector class.
+ * Tests suspicion growth with silence and adaptation to the arrival rhythm.
+ */
+class PhiAccrualDetectorTest {
+
+    @Test
+    void testPhi_GrowsWithSilence() {
+        PhiAccrualDetector d = new PhiAccrualDetector(1000, 100, 0, 0);
+        for (long t = 1000; t <= 20_000; t += 1000) d.heartbeat(t);
+        assertTrue(d.phi(20_100) < 1.0);
+        assertTrue(d.phi(21_000) < d.phi(21_300));
+        assertTrue(d.phi(21_300) < d.phi(22_000));
+        assertTrue(d.phi(23_000) > 8.0);
+        d.heartbeat(23_000);
+        assertTrue(d.phi(23_000) < 1.0);
+    }
+
+    @Test
+    void testPhi_IrregularArrivalsTolerateLongerGaps() {
+        PhiAccrualDetector steady = new PhiAccrualDetector(1000, 10, 0, 0);
+        PhiAccrualDetector jittery = new PhiAccrualDetector(1000, 10, 0, 0);
+        long t = 0;
+        for (int i = 0; i < 50; i++) {
+            t += 1000;
+            steady.heartbeat(t);
+            jittery.heartbeat(t + (i % 2 == 0 ? -400 : 400));
+        }
+        long silent = t + 1600;
+        assertTrue(steady.phi(silent) > 8.0);
+        assertTrue(jittery.phi(silent) < steady.phi(silent));
+    }
+
+    @Test
+    void testPhi_AcceptablePauseCoversBusyToIdle() {
+        PhiAccrualDetector d = new PhiAccrualDetector(1000, 100, 2000, 0);
+        for (long t = 5; t <= 500; t += 5) d.heartbeat(t);
+        assertTrue(d.phi(1600) < 1.0);
+        assertTrue(d.phi(4000) > 8.0);
+    }
+}
@@ -0,0 +1,63 @@
+package pdc;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit 5 tests for the PipelineStage class.
+ * Tests stage timings and the bounded queue.
+ */
+class PipelineStageTest {
+
+    @Test
+    void testTiming_CountsWaitAndRun() throws Exception {
+        PipelineStage stage = new PipelineStage("test", 1, 4);
+        CountDownLatch done = new CountDownLatch(3);
+        try {
+            for (int i = 0; i < 3; i++) {
+                stage.execute(() -> {
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException ignored) {}
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (stage.timing().items() < 3 && System.currentTimeMillis() < deadline) Thread.sleep(1);
+
+            PipelineStage.Timing timing = stage.timing();
+            assertEquals("test", timing.name());
+            assertEquals(3, timing.items());
+            assertTrue(timing.runNanos() >= TimeUnit.MILLISECONDS.toNanos(15));
+            assertTrue(timing.waitNanos() >= TimeUnit.MILLISECONDS.toNanos(5));
+        } finally {
+            stage.shutdownNow();
+        }
+    }
+
+    @Test
+    void testExecute_RejectsWhenQueueFull() throws Exception {
+        PipelineStage stage = new PipelineStage("test", 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            stage.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {}
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            stage.execute(() -> {});
+            assertThrows(RejectedExecutionException.class, () -> stage.execute(() -> {}));
+        } finally {
+            release.countDown();
+            stage.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package pdc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit 5 tests for the ResultCache class.
+ * Tests content keys, byte-bounded LRU eviction and the disk spill,
+ * including keys that would escape the spill directory.
+ */
+class ResultCacheTest {
+
+    @Test
+    void testKey_ContentAddressed() {
+        Matrix a = MatrixGenerator.generateRandom(700, 300, 100);
+        Matrix same = Matrix.fromArray(a.toArray());
+        assertEquals(ResultCache.key("BLOCK_MULTIPLY", a), ResultCache.key("BLOCK_MULTIPLY", same));
+        assertNotEquals(ResultCache.key("BLOCK_MULTIPLY", a), ResultCache.key("SUM", a));
+        same.set(699, 299, a.get(699, 299) + 1);
+        assertNotEquals(ResultCache.key("BLOCK_MULTIPLY", a), ResultCache.key("BLOCK_MULTIPLY", same));
+        assertTrue(ResultCache.key("../../etc/passwd", a).matches("[0-9a-fx-]+"));
+    }
+
+    @Test
+    void testPut_EvictsLeastRecentlyUsed() {
+        ResultCache cache = new ResultCache(2 * 16 * Integer.BYTES);
+        Matrix m = MatrixGenerator.generateRandom(4, 4, 10);
+        cache.put("a", m);
+        cache.put("b", m);
+        assertNotNull(cache.get("a"));
+        cache.put("c", m);
+        assertNull(cache.get("b"));
+        assertEquals(m, cache.get("a"));
+        assertEquals(2, cache.size());
+
+        Matrix copy = cache.get("c");
+        copy.set(0, 0, copy.get(0, 0) + 1);
+        assertEquals(m, cache.get("c"));
+    }
+
+    @Test
+    void testSpill_SurvivesRestart(@TempDir Path dir) {
+        Matrix m = MatrixGenerator.generateRandom(5, 3, 10);
+        new ResultCache(1 << 20, dir, 1 << 20).put("k", m);
+        ResultCache reopened = new ResultCache(1 << 20, dir, 1 << 20);
+        assertEquals(m, reopened.get("k"));
+        assertNull(reopened.get("missing"));
+    }
+
+    @Test
+    void testSpill_RefusesKeysOutsideDirectory(@TempDir Path dir) throws Exception {
+        Path spill = Files.createDirectory(dir.resolve("spill"));
+        ResultCache cache = new ResultCache(1 << 20, spill, 1 << 20);
+        Matrix m = MatrixGenerator.generateRandom(2, 2, 10);
+        assertThrows(IllegalArgumentException.class, () -> cache.put("../escaped", m));
+        assertFalse(Files.exists(dir.resolve("escaped.mat")));
+        assertNull(cache.get("../escaped"));
+    }
+}
@@ -0,0 +1,83 @@
+package pdc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit 5 tests for the ResultStream class.
+ * Tests demand-bounded delivery, completion, failure and cancellation.
+ */
+class ResultStreamTest {
+
+    private static final class Recorder implements Flow.Subscriber<ResultStream.RowBlock> {
+        final List<Integer> starts = new ArrayList<>();
+        Flow.Subscription subscription;
+        Throwable error;
+        boolean completed;
+
+        public void onSubscribe(Flow.Subscription s) { subscription = s; }
+        public void onNext(ResultStream.RowBlock block) { starts.add(block.startRow()); }
+        public void onError(Throwable t) { error = t; }
+        public void onComplete() { completed = true; }
+    }
+
+    @Test
+    void testDelivery_BoundedByDemand() {
+        AtomicInteger delivered = new AtomicInteger();
+        ResultStream stream = new ResultStream(Runnable::run, delivered::incrementAndGet, () -> {});
+        Recorder recorder = new Recorder();
+        stream.subscribe(recorder);
+        stream.emit(8, new Matrix(4, 2));
+        stream.emit(0, new Matrix(8, 2));
+        stream.complete();
+        assertTrue(recorder.starts.isEmpty());
+
+        recorder.subscription.request(1);
+        assertEquals(List.of(8), recorder.starts);
+        assertFalse(recorder.completed, "Completion waits for queued blocks");
+        recorder.subscription.request(5);
+        assertEquals(List.of(8, 0), recorder.starts);
+        assertEquals(2, delivered.get());
+        assertTrue(recorder.completed);
+    }
+
+    @Test
+    void testCancel_NotifiesProducerAndStopsDelivery() {
+        AtomicInteger cancels = new AtomicInteger();
+        ResultStream stream = new ResultStream(Runnable::run, () -> {}, cancels::incrementAndGet);
+        Recorder recorder = new Recorder();
+        stream.subscribe(recorder);
+        recorder.subscription.request(Long.MAX_VALUE);
+        recorder.subscription.cancel();
+        stream.emit(0, new Matrix(1, 1));
+        stream.fail(new IllegalStateException());
+        assertEquals(1, cancels.get());
+        assertTrue(recorder.starts.isEmpty());
+        assertNull(recorder.error);
+
+        Recorder second = new Recorder();
+        stream.subscribe(second);
+        assertTrue(second.error instanceof IllegalStateException, "Only one subscriber is allowed");
+    }
+
+    @Test
+    void testFail_DuringDeliveryIsNotReportedAsCompletion() {
+        AtomicReference<ResultStream> ref = new AtomicReference<>();
+        ResultStream stream = new ResultStream(Runnable::run,
+                () -> ref.get().fail(new IllegalStateException("deadline")), () -> {});
+        ref.set(stream);
+        Recorder recorder = new Recorder();
+        stream.subscribe(recorder);
+        stream.emit(0, new Matrix(1, 1));
+        recorder.subscription.request(1);
+        assertEquals(List.of(0), recorder.starts);
+        assertFalse(recorder.completed);
+        assertTrue(recorder.error instanceof IllegalStateException);
+    }
+}
@@ -0,0 +1,69 @@
+package pdc;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit 5 tests for the TileCodec class.
+ * Tests binary tile round trips, decoding into views and header validation.
+ */
+class TileCodecTest {
+
+    @Test
+    void testTile_RoundTrip() {
+        int[][] matrix = { { 1, -2, 3 }, { 4, 5, -6 }, { 7, 8, Integer.MAX_VALUE } };
+        ByteBuffer buf = TileCodec.wrap(new byte[TileCodec.tileBytes(2, 3)]);
+        TileCodec.writeTile(buf, Matrix.fromArray(matrix).rowBlock(1, 3));
+        assertFalse(buf.hasRemaining(), "Tile should fill exactly its computed size");
+
+        buf.flip();
+        int[][] block = TileCodec.readMatrix(buf).toArray();
+        assertArrayEquals(matrix[1], block[0]);
+        assertArrayEquals(matrix[2], block[1]);
+    }
+
+    @Test
+    void testReadInto_ClipsIntoView() {
+        int[][] tile = { { 1, 2, 3 }, { 4, 5, 6 }, { 7, 8, 9 } };
+        ByteBuffer buf = TileCodec.wrap(new byte[TileCodec.tileBytes(3, 3) + 4]);
+        TileCodec.writeTile(buf, Matrix.fromArray(tile));
+        buf.putInt(42);
+        buf.flip();
+
+        Matrix out = new Matrix(4, 4);
+        TileCodec.readInto(buf, out.block(2, 4, 1, 3));
+        assertEquals(42, buf.getInt(), "Reader should advance past the whole tile");
+        assertArrayEquals(new int[] { 0, 1, 2, 0 }, out.toArray()[2]);
+        assertArrayEquals(new int[] { 0, 4, 5, 0 }, out.toArray()[3]);
+        assertEquals(0, out.get(1, 1));
+    }
+
+    @Test
+    void testTile_LittleEndianHeader() {
+        ByteBuffer buf = TileCodec.wrap(new byte[TileCodec.tileBytes(1, 1)]);
+        TileCodec.writeTile(buf, Matrix.fromArray(new int[][] { { 258 } }));
+        byte[] bytes = buf.array();
+        assertEquals(1, bytes[0], "Row count should be little-endian");
+        assertEquals(4, bytes[8], "Element width should follow rows and cols");
+        assertEquals(2, bytes[12]);
+        assertEquals(1, bytes[13]);
+    }
+
+    @Test
+    void testTile_RejectsUnknownWidth() {
+        ByteBuffer buf = TileCodec.wrap(new byte[TileCodec.HEADER_BYTES]);
+        buf.putInt(0).putInt(0).putInt(8);
+        buf.flip();
+        assertThrows(IllegalStateException.class, () -> TileCodec.readMatrix(buf));
+    }
+
+    @Test
+    void testString_RoundTrip() {
+        ByteBuffer buf = TileCodec.wrap(new byte[TileCodec.stringBytes("task-1")]);
+        TileCodec.putString(buf, "task-1");
+        buf.flip();
+        assertEquals("task-1", TileCodec.getString(buf));
+    }
+}
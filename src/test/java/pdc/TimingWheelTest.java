@@ -0,0 +1,54 @@
+package pdc;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit 5 tests for the TimingWheel class.
+ * Tests expiry across wheel rotations and cancellation.
+ */
+class TimingWheelTest {
+
+    private final TimingWheel wheel = new TimingWheel(1, 4, Runnable::run, "test-timer");
+
+    @AfterEach
+    void tearDown() {
+        wheel.stop();
+    }
+
+    @Test
+    void testSchedule_FiresAfterDelayAcrossRotations() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(2);
+        AtomicLong elapsed = new AtomicLong();
+        long start = System.nanoTime();
+        wheel.schedule(fired::countDown, 1, TimeUnit.MILLISECONDS);
+        TimingWheel.Timeout late = wheel.schedule(() -> {
+            elapsed.set(System.nanoTime() - start);
+            fired.countDown();
+        }, 30, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertTrue(elapsed.get() >= TimeUnit.MILLISECONDS.toNanos(30), "Timeout must not fire early");
+        assertTrue(late.isExpired());
+        assertFalse(late.cancel());
+    }
+
+    @Test
+    void testCancel_PreventsCallback() throws InterruptedException {
+        AtomicBoolean ran = new AtomicBoolean();
+        TimingWheel.Timeout timeout = wheel.schedule(() -> ran.set(true), 10, TimeUnit.MILLISECONDS);
+        assertTrue(timeout.cancel());
+        CountDownLatch after = new CountDownLatch(1);
+        wheel.schedule(after::countDown, 20, TimeUnit.MILLISECONDS);
+
+        assertTrue(after.await(5, TimeUnit.SECONDS));
+        assertFalse(ran.get());
+        assertTrue(timeout.isCancelled());
+    }
+}
@@ -0,0 +1,39 @@
+package pdc;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit 5 tests for the WorkerCapabilities class.
+ * Tests parsing of the registration formats, merging and credits.
+ */
+class WorkerCapabilitiesTest {
+
+    @Test
+    void testParse_FullRecord() {
+        WorkerCapabilities caps = WorkerCapabilities.parse("BLOCK_MULTIPLY,SUM;cores=8;gflops=2.5");
+        assertEquals(8, caps.cores());
+        assertEquals(2.5, caps.gflops(), 1e-9);
+        assertTrue(caps.supports("SUM"));
+        assertFalse(caps.supports("TRANSPOSE"));
+        assertEquals(caps.toString(), WorkerCapabilities.parse(caps.toString()).toString());
+    }
+
+    @Test
+    void testMerge_KeepsEarlierCores() {
+        WorkerCapabilities registered = WorkerCapabilities.parse("cores=32");
+        assertTrue(registered.supports("ANYTHING"));
+        WorkerCapabilities merged = WorkerCapabilities.parse("MATRIX_MULTIPLY,SHARED_MATRIX").merge(registered);
+        assertEquals(32, merged.cores());
+        assertFalse(merged.supports("SUM"));
+    }
+
+    @Test
+    void testCredits_UnreportedIsUnlimited() {
+        WorkerCapabilities caps = WorkerCapabilities.parse("SUM;credits=12;creditBytes=4096");
+        assertEquals(12, caps.credits());
+        assertEquals(4096L, caps.creditBytes());
+        assertEquals(Integer.MAX_VALUE, WorkerCapabilities.parse("cores=4").credits());
+        assertEquals(12, WorkerCapabilities.parse("SUM").merge(caps).credits());
+    }
+}